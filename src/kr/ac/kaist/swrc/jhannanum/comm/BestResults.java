@@ -0,0 +1,304 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+package kr.ac.kaist.swrc.jhannanum.comm;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * This class enumerates the analysis results of a morpheme lattice one by one in the order of the score,
+ * so the plug-ins can take only as many results as they need without expanding the lattice. The paths of
+ * the lattice are searched with A*, where the best score from each node to the end is the estimate.
+ * The results of the same score are in the order of the lattice, and the same result on the different
+ * paths, e.g. after the post processing, is returned only once unless setDistinct(false) is called.
+ * getLatticeOrder() tells where each result is in the order of the lattice, so the results taken
+ * can be put back in that order.<br>
+ * <br>
+ * Without the scorer, the results of the fewest morphemes come first.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class BestResults {
+	/** the morpheme lattice */
+	private MorphemeLattice lattice = null;
+	
+	/** the scorer of the morphemes, null for the number of morphemes */
+	private LatticeScorer scorer = null;
+	
+	/** the best score from each node to the end, NaN: not computed yet */
+	private double[] bestRest = null;
+	
+	/** the score of each next node of each node */
+	private double[][] nextScore = null;
+	
+	/** the last node of each partial path, 0: the root, or the end for the complete path */
+	private int[] pathNode = null;
+	
+	/** the partial path which each partial path extends, -1: the root */
+	private int[] pathPrev = null;
+	
+	/** the index of the next node which each partial path took from the one it extends */
+	private int[] pathNext = null;
+	
+	/** the number of morphemes in each partial path */
+	private int[] pathLength = null;
+	
+	/** the score of each partial path */
+	private double[] pathScore = null;
+	
+	/** the best score of the complete paths from each partial path */
+	private double[] pathEstimate = null;
+	
+	/** the number of partial paths */
+	private int pathCount = 0;
+	
+	/** the priority queue of the partial paths */
+	private int[] pathQueue = null;
+	
+	/** the number of partial paths in the queue */
+	private int queueSize = 0;
+	
+	/** the score of the last result */
+	private double score = 0.0;
+	
+	/** the results returned, null if the same result on the different paths is returned again */
+	private HashSet<String> results = new HashSet<String>();
+	
+	/** the last complete path returned */
+	private int lastPath = -1;
+	
+	/**
+	 * Constructor. The results are scored with the scorer of the lattice.
+	 * @param lattice - the morpheme lattice
+	 */
+	public BestResults(MorphemeLattice lattice) {
+		this(lattice, lattice.getScorer());
+	}
+	
+	/**
+	 * Constructor.
+	 * @param lattice - the morpheme lattice
+	 * @param scorer - the scorer of the morphemes, null for the number of morphemes
+	 */
+	public BestResults(MorphemeLattice lattice, LatticeScorer scorer) {
+		int nodeCount = lattice.getNodeCount();
+		
+		this.lattice = lattice;
+		this.scorer = scorer;
+		bestRest = new double[nodeCount];
+		nextScore = new double[nodeCount][];
+		Arrays.fill(bestRest, Double.NaN);
+		
+		pathNode = new int[16];
+		pathPrev = new int[16];
+		pathNext = new int[16];
+		pathLength = new int[16];
+		pathScore = new double[16];
+		pathEstimate = new double[16];
+		pathQueue = new int[16];
+		
+		if (getBestRest(0) != Double.NEGATIVE_INFINITY) {
+			addPath(0, -1, -1, 0, 0.0, bestRest[0]);
+		}
+	}
+	
+	/**
+	 * Sets whether the same result on the different paths is returned only once.
+	 * @param distinct - true: the result is returned once, which is the default, false: once for each path
+	 */
+	public void setDistinct(boolean distinct) {
+		results = distinct ? new HashSet<String>() : null;
+	}
+	
+	/**
+	 * Returns the next analysis result of the best score.
+	 * @return the next result, null if there is no more result
+	 */
+	public Eojeol next() {
+		while (queueSize > 0) {
+			int path = pollPath();
+			int node = pathNode[path];
+			int length = pathLength[path];
+			
+			if (node == 0 && pathPrev[path] != -1) {
+				Eojeol eojeol = getEojeol(path);
+				if (results == null || results.add(eojeol.toString())) {
+					score = pathScore[path];
+					lastPath = path;
+					return eojeol;
+				}
+				continue;
+			}
+			
+			for (int i = 0; i < lattice.getNextCount(node); i++) {
+				int next = lattice.getNext(node, i);
+				double s = pathScore[path] + nextScore[node][i];
+				if (next == 0) {
+					addPath(0, path, i, length, s, s);
+				} else if (bestRest[next] != Double.NEGATIVE_INFINITY) {
+					addPath(next, path, i, length + 1, s, s + bestRest[next]);
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the score of the last result returned by next().
+	 * @return the score of the result
+	 */
+	public double getScore() {
+		return score;
+	}
+	
+	/**
+	 * Returns the position of the last result in the order of the lattice, which is the indices of the next nodes
+	 * taken from the start to the end. The results in the order of the lattice have these in the lexicographic order.
+	 * @return the indices of the next nodes, including the one to the end
+	 */
+	public int[] getLatticeOrder() {
+		int[] order = new int[pathLength[lastPath] + 1];
+		int i = order.length;
+		for (int p = lastPath; pathPrev[p] != -1; p = pathPrev[p]) {
+			order[--i] = pathNext[p];
+		}
+		return order;
+	}
+	
+	/**
+	 * Returns the best score from the specified node to the end of the eojeol, and keeps the scores of its next nodes.
+	 * @param node - the index of the node, 0 for the start
+	 * @return the best score after the node, Double.NEGATIVE_INFINITY if it doesn't reach the end
+	 */
+	private double getBestRest(int node) {
+		if (Double.isNaN(bestRest[node])) {
+			int count = lattice.getNextCount(node);
+			String prevTag = (node == 0) ? null : lattice.getTag(node);
+			double best = Double.NEGATIVE_INFINITY;
+			
+			nextScore[node] = new double[count];
+			for (int i = 0; i < count; i++) {
+				int next = lattice.getNext(node, i);
+				double s;
+				if (next == 0) {
+					s = (scorer == null) ? 0.0 : scorer.score(prevTag, null, null);
+				} else {
+					s = (scorer == null) ? -1.0 : scorer.score(prevTag, lattice.getMorpheme(next), lattice.getTag(next));
+				}
+				nextScore[node][i] = s;
+				if (next != 0) {
+					s += getBestRest(next);
+				}
+				if (s > best) {
+					best = s;
+				}
+			}
+			bestRest[node] = best;
+		}
+		return bestRest[node];
+	}
+	
+	/**
+	 * Adds a partial path to the queue.
+	 * @param node - the last node of the path
+	 * @param prev - the partial path which the path extends
+	 * @param nextIndex - the index of the next node which the path took from the one it extends
+	 * @param length - the number of morphemes in the path
+	 * @param score - the score of the path
+	 * @param estimate - the best score of the complete paths from it
+	 */
+	private void addPath(int node, int prev, int nextIndex, int length, double score, double estimate) {
+		if (pathCount == pathNode.length) {
+			pathNode = Arrays.copyOf(pathNode, pathCount * 2);
+			pathPrev = Arrays.copyOf(pathPrev, pathCount * 2);
+			pathNext = Arrays.copyOf(pathNext, pathCount * 2);
+			pathLength = Arrays.copyOf(pathLength, pathCount * 2);
+			pathScore = Arrays.copyOf(pathScore, pathCount * 2);
+			pathEstimate = Arrays.copyOf(pathEstimate, pathCount * 2);
+		}
+		pathNode[pathCount] = node;
+		pathPrev[pathCount] = prev;
+		pathNext[pathCount] = nextIndex;
+		pathLength[pathCount] = length;
+		pathScore[pathCount] = score;
+		pathEstimate[pathCount] = estimate;
+		
+		if (queueSize == pathQueue.length) {
+			pathQueue = Arrays.copyOf(pathQueue, queueSize * 2);
+		}
+		int i = queueSize++;
+		while (i > 0 && before(pathCount, pathQueue[(i - 1) / 2])) {
+			pathQueue[i] = pathQueue[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+		pathQueue[i] = pathCount;
+		pathCount++;
+	}
+	
+	/**
+	 * Removes the partial path of the best estimate from the queue.
+	 * @return the partial path
+	 */
+	private int pollPath() {
+		int top = pathQueue[0];
+		int path = pathQueue[--queueSize];
+		int i = 0;
+		
+		while (2 * i + 1 < queueSize) {
+			int child = 2 * i + 1;
+			if (child + 1 < queueSize && before(pathQueue[child + 1], pathQueue[child])) {
+				child++;
+			}
+			if (!before(pathQueue[child], path)) {
+				break;
+			}
+			pathQueue[i] = pathQueue[child];
+			i = child;
+		}
+		pathQueue[i] = path;
+		return top;
+	}
+	
+	/**
+	 * Checks whether a partial path is taken before the other one.
+	 * @param a - a partial path
+	 * @param b - the other partial path
+	 * @return true: the path a has the better estimate, or the same estimate and was added earlier
+	 */
+	private boolean before(int a, int b) {
+		return pathEstimate[a] > pathEstimate[b] || (pathEstimate[a] == pathEstimate[b] && a < b);
+	}
+	
+	/**
+	 * Returns the eojeol of the complete path.
+	 * @param path - the complete path
+	 * @return the eojeol
+	 */
+	private Eojeol getEojeol(int path) {
+		int length = pathLength[path];
+		String[] mArray = new String[length];
+		String[] tArray = new String[length];
+		
+		int i = length;
+		for (int p = pathPrev[path]; pathPrev[p] != -1; p = pathPrev[p]) {
+			i--;
+			mArray[i] = lattice.getMorpheme(pathNode[p]);
+			tArray[i] = lattice.getTag(pathNode[p]);
+		}
+		return new Eojeol(mArray, tArray);
+	}
+}
@@ -0,0 +1,35 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+package kr.ac.kaist.swrc.jhannanum.comm;
+
+/**
+ * This interface scores the morphemes of a morpheme lattice, so the analysis results can be enumerated
+ * in the order of the score with BestResults. The score of a result is the sum of the scores of its
+ * morphemes and the end of the eojeol, e.g. the log probability of the result.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public interface LatticeScorer {
+	/**
+	 * Returns the score of the morpheme which follows the morpheme of the specified tag.
+	 * @param prevTag - the tag of the previous morpheme, null at the start of the eojeol
+	 * @param morpheme - the morpheme, null for the end of the eojeol
+	 * @param tag - the morpheme tag, null for the end of the eojeol
+	 * @return the score, which is higher for the better result
+	 */
+	public double score(String prevTag, String morpheme, String tag);
+}
@@ -0,0 +1,306 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.comm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class represents all the morphological analysis results of an eojeol as a lattice of morphemes.
+ * Each analysis result is a path of the lattice, so the morphemes shared by many results are kept
+ * only once, e.g. '나/pvg' of '나/pvg+아/ecs+는/jxc' and '나/pvg+아/ef+는/etm'.<br>
+ * <br>
+ * The node 0 is the start and the end of the lattice. The first morphemes of the results are the next
+ * nodes of the node 0, and a morpheme is the last one of a result if the node 0 is one of its next nodes.
+ * The next nodes are kept in the order of the results, so the paths are listed in the same order with
+ * the eojeols which the morphological analyzer generates without the lattice. The alternatives of a node,
+ * e.g. 'nqq' for an unknown morpheme tagged with 'ncn', are expanded after the other results in the same
+ * order with the eojeol lists where a copy of each result is appended for each alternative.<br>
+ * <br>
+ * The results can also be taken one by one in the order of the score with BestResults, where the
+ * morphological analyzer may set the scorer of the lattice.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class MorphemeLattice {
+	/** the morpheme of each node */
+	private String[] morphemes = null;
+
+	/** the tag of each node */
+	private String[] tags = null;
+
+	/** the next nodes of each node */
+	private int[][] next = null;
+
+	/** the number of the next nodes of each node */
+	private int[] nextCount = null;
+
+	/** the first alternative of each node, or the next alternative of the same node for an alternative, 0: none */
+	private int[] alternative = null;
+
+	/** the node which each alternative was added for, 0 if the node is not an alternative */
+	private int[] alternativeOf = null;
+
+	/** the number of nodes */
+	private int nodeCount = 0;
+
+	/** the scorer of the morphemes for BestResults, null for the number of morphemes */
+	private LatticeScorer scorer = null;
+
+	/**
+	 * Constructor. The lattice has only the node 0 for the start and the end.
+	 */
+	public MorphemeLattice() {
+		morphemes = new String[16];
+		tags = new String[16];
+		next = new int[16][];
+		nextCount = new int[16];
+		alternative = new int[16];
+		alternativeOf = new int[16];
+		addNode("", "");
+	}
+
+	/**
+	 * Adds a node for the morpheme.
+	 * @param morpheme - the morpheme
+	 * @param tag - the morpheme tag
+	 * @return the index of the new node
+	 */
+	public int addNode(String morpheme, String tag) {
+		if (nodeCount == morphemes.length) {
+			morphemes = Arrays.copyOf(morphemes, nodeCount * 2);
+			tags = Arrays.copyOf(tags, nodeCount * 2);
+			next = Arrays.copyOf(next, nodeCount * 2);
+			nextCount = Arrays.copyOf(nextCount, nodeCount * 2);
+			alternative = Arrays.copyOf(alternative, nodeCount * 2);
+			alternativeOf = Arrays.copyOf(alternativeOf, nodeCount * 2);
+		}
+		morphemes[nodeCount] = morpheme;
+		tags[nodeCount] = tag;
+		next[nodeCount] = new int[2];
+		nextCount[nodeCount] = 0;
+		alternative[nodeCount] = 0;
+		alternativeOf[nodeCount] = 0;
+		return nodeCount++;
+	}
+
+	/**
+	 * Adds the next node of the specified node after its last next node.
+	 * @param node - the index of the node
+	 * @param nextNode - the index of the next node, 0 if the node is the end of an analysis result
+	 */
+	public void addNext(int node, int nextNode) {
+		insertNext(node, nextCount[node], nextNode);
+	}
+
+	/**
+	 * Adds the node which has the same morpheme and next nodes with the specified node, but has the other tag.
+	 * The new node is the next node of the nodes which have the specified node as the next node, and it is
+	 * placed right after the specified node, so the new results follow the results of the specified node.
+	 * @param node - the index of the node
+	 * @param tag - the tag of the new node
+	 * @return the index of the new node
+	 */
+	public int addAlternative(int node, String tag) {
+		int alt = addNode(morphemes[node], tag);
+		for (int i = 0; i < nextCount[node]; i++) {
+			addNext(alt, next[node][i]);
+		}
+		int last = node;
+		while (alternative[last] != 0) {
+			last = alternative[last];
+		}
+		alternative[last] = alt;
+		alternativeOf[alt] = node;
+		for (int n = 0; n < alt; n++) {
+			for (int i = 0; i < nextCount[n]; i++) {
+				if (next[n][i] == node) {
+					insertNext(n, ++i, alt);
+				}
+			}
+		}
+		return alt;
+	}
+
+	/**
+	 * Returns the number of nodes including the node 0.
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the morpheme of the node.
+	 * @param node - the index of the node
+	 * @return the morpheme
+	 */
+	public String getMorpheme(int node) {
+		return morphemes[node];
+	}
+
+	/**
+	 * Returns the morpheme tag of the node.
+	 * @param node - the index of the node
+	 * @return the morpheme tag
+	 */
+	public String getTag(int node) {
+		return tags[node];
+	}
+
+	/**
+	 * Changes the morpheme tag of the node.
+	 * @param node - the index of the node
+	 * @param tag - new morpheme tag
+	 */
+	public void setTag(int node, String tag) {
+		tags[node] = tag;
+	}
+
+	/**
+	 * Returns the number of the next nodes of the node.
+	 * @param node - the index of the node
+	 * @return the number of the next nodes
+	 */
+	public int getNextCount(int node) {
+		return nextCount[node];
+	}
+
+	/**
+	 * Returns the next node of the node.
+	 * @param node - the index of the node
+	 * @param i - the index of the next node, which is less than getNextCount(node)
+	 * @return the index of the i-th next node, 0 for the end of an analysis result
+	 */
+	public int getNext(int node, int i) {
+		return next[node][i];
+	}
+
+	/**
+	 * Returns the scorer of the morphemes, which BestResults uses by default.
+	 * @return the scorer, null if the results are scored with the number of morphemes
+	 */
+	public LatticeScorer getScorer() {
+		return scorer;
+	}
+
+	/**
+	 * Sets the scorer of the morphemes, which BestResults uses by default.
+	 * @param scorer - the scorer, null for the number of morphemes
+	 */
+	public void setScorer(LatticeScorer scorer) {
+		this.scorer = scorer;
+	}
+
+	/**
+	 * Expands the lattice to the list of eojeols, one for each path from the start to the end.
+	 * The paths without the alternatives come first in the order of the lattice. Then, like the copies
+	 * appended to the eojeol list, each path in the list is followed at the end of the list by the paths
+	 * where one of its nodes after the last replaced node is replaced with its alternatives.
+	 * @return the morphological analysis results in the lattice
+	 */
+	public Eojeol[] toEojeols() {
+		ArrayList<int[]> paths = new ArrayList<int[]>();
+		ArrayList<Integer> replaced = new ArrayList<Integer>();
+		expand(0, new int[8], 0, paths);
+		for (int i = 0; i < paths.size(); i++) {
+			replaced.add(0);
+		}
+		
+		for (int i = 0; i < paths.size(); i++) {
+			int[] path = paths.get(i);
+			for (int j = replaced.get(i); j < path.length; j++) {
+				for (int alt = alternative[path[j]]; alt != 0; alt = alternative[alt]) {
+					int[] copy = path.clone();
+					copy[j] = alt;
+					paths.add(copy);
+					replaced.add(j + 1);
+				}
+			}
+		}
+		
+		Eojeol[] eojeols = new Eojeol[paths.size()];
+		for (int i = 0; i < eojeols.length; i++) {
+			int[] path = paths.get(i);
+			String[] m = new String[path.length];
+			String[] t = new String[path.length];
+			for (int j = 0; j < path.length; j++) {
+				m[j] = morphemes[path[j]];
+				t[j] = tags[path[j]];
+			}
+			eojeols[i] = new Eojeol(m, t);
+		}
+		return eojeols;
+	}
+
+	/**
+	 * Adds all the paths which follow the specified path, without the alternatives.
+	 * @param node - the last node of the path
+	 * @param path - the nodes of the path from the first morpheme
+	 * @param len - the number of nodes in the path
+	 * @param paths - the list to add the paths
+	 */
+	private void expand(int node, int[] path, int len, ArrayList<int[]> paths) {
+		for (int i = 0; i < nextCount[node]; i++) {
+			int n = next[node][i];
+			if (n == 0) {
+				paths.add(Arrays.copyOf(path, len));
+			} else if (alternativeOf[n] == 0) {
+				if (len == path.length) {
+					path = Arrays.copyOf(path, len * 2);
+				}
+				path[len] = n;
+				expand(n, path, len + 1, paths);
+			}
+		}
+	}
+
+	/**
+	 * Inserts the next node of the specified node at the position.
+	 * @param node - the index of the node
+	 * @param pos - the position in the next nodes
+	 * @param nextNode - the index of the next node
+	 */
+	private void insertNext(int node, int pos, int nextNode) {
+		int[] list = next[node];
+		int count = nextCount[node];
+		if (count == list.length) {
+			list = next[node] = Arrays.copyOf(list, count * 2);
+		}
+		System.arraycopy(list, pos, list, pos + 1, count - pos);
+		list[pos] = nextNode;
+		nextCount[node] = count + 1;
+	}
+
+	/**
+	 * It returns the string representation of the lattice, which is the list of the analysis results.
+	 * For example, 나/ncn+는/jxc^나/npp+는/jxc.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		Eojeol[] eojeols = toEojeols();
+		for (int i = 0; i < eojeols.length; i++) {
+			if (i != 0) {
+				buf.append('^');
+			}
+			buf.append(eojeols[i]);
+		}
+		return buf.toString();
+	}
+}
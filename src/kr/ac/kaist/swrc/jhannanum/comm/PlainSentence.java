@@ -17,6 +17,8 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.comm;
 
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
+
 /**
  * This class contains a plain sentence which is not analyzed yet.
  * It is used by the HanNanum work flow and its plug-ins to communicate
@@ -30,6 +32,11 @@ public class PlainSentence extends CommObject {
 	 */
 	private String sentence = null;
 	
+	/**
+	 * The user dictionary layer of the document, null if the document has no layer.
+	 */
+	private UserDicLayer userDicLayer = null;
+	
 	/**
 	 * Constructor.
 	 * @param documentID - ID of the document which this sentence belong to
@@ -72,6 +79,22 @@ public class PlainSentence extends CommObject {
 		this.sentence = sentence;
 	}
 
+	/**
+	 * Getter of the user dictionary layer of the document.
+	 * @return the user dictionary layer, null if the document has no layer
+	 */
+	public UserDicLayer getUserDicLayer() {
+		return userDicLayer;
+	}
+
+	/**
+	 * Setter of the user dictionary layer of the document.
+	 * @param userDicLayer - the user dictionary layer, null for no layer
+	 */
+	public void setUserDicLayer(UserDicLayer userDicLayer) {
+		this.userDicLayer = userDicLayer;
+	}
+
 	/**
 	 * It returns the plain string.
 	 * @return the plain string or null when it is not set set up
@@ -18,6 +18,7 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 package kr.ac.kaist.swrc.jhannanum.comm;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
  * This class represents the set of sentences that were results of the morphological analysis
@@ -59,6 +60,17 @@ public class SetOfSentences extends CommObject {
 	 */
 	private ArrayList<String> plainEojeolArray = null;
 	
+	/**
+	 * The array of the morpheme lattices, null if no eojeol has the lattice.
+	 * The eojeol which has the lattice instead of the eojeol list has an empty array in the eojeol lists.
+	 */
+	private ArrayList<MorphemeLattice> latticeArray = null;
+	
+	/**
+	 * The eojeols whose analysis ran out of the work budget of the morphological analyzer, null if none.
+	 */
+	private BitSet budgetExceeded = null;
+	
 	/**
 	 * Constructor.
 	 * @param documentID - ID of the document which this sentence is belong to
@@ -145,6 +157,60 @@ public class SetOfSentences extends CommObject {
 		this.eojeolSetArray = eojeolSetArray;
 	}
 	
+	/**
+	 * Returns the array of the morpheme lattices, which has null for the eojeols without the lattice.
+	 * The analysis results of a lattice can be taken one by one in the order of the score with BestResults.
+	 * @return the array of the morpheme lattices, null if no eojeol has the lattice
+	 */
+	public ArrayList<MorphemeLattice> getLatticeArray() {
+		return latticeArray;
+	}
+
+	/**
+	 * Sets the array of the morpheme lattices. The lattice is used instead of the eojeol list for the
+	 * eojeol on the same index, which is null if the eojeol has only the eojeol list.
+	 * @param latticeArray - the array of the morpheme lattices
+	 */
+	public void setLatticeArray(ArrayList<MorphemeLattice> latticeArray) {
+		this.latticeArray = latticeArray;
+	}
+
+	/**
+	 * Marks the eojeol whose analysis ran out of the work budget, so its results are the fallback of the analyzer.
+	 * @param index - the index of the eojeol
+	 */
+	public void setBudgetExceeded(int index) {
+		if (budgetExceeded == null) {
+			budgetExceeded = new BitSet();
+		}
+		budgetExceeded.set(index);
+	}
+
+	/**
+	 * Returns whether the analysis of the eojeol ran out of the work budget.
+	 * @param index - the index of the eojeol
+	 * @return true: the results of the eojeol are the fallback of the analyzer, false: otherwise
+	 */
+	public boolean isBudgetExceeded(int index) {
+		return budgetExceeded != null && budgetExceeded.get(index);
+	}
+
+	/**
+	 * Expands the morpheme lattices to the eojeol lists, for the plug-ins which use only the eojeol lists.
+	 */
+	public void expandLattices() {
+		if (latticeArray == null) {
+			return;
+		}
+		for (int i = 0; i < latticeArray.size(); i++) {
+			MorphemeLattice lattice = latticeArray.get(i);
+			if (lattice != null) {
+				eojeolSetArray.set(i, lattice.toEojeols());
+			}
+		}
+		latticeArray = null;
+	}
+	
 	/**
 	 * Returns the string representation of the morphologically analyzed sentences.
 	 * For example,
@@ -175,6 +241,9 @@ public class SetOfSentences extends CommObject {
 		for (int i = 0; i < length; i++) {
 			str += plainEojeolArray.get(i) + "\n";
 			Eojeol[] eojeolArray = eojeolSetArray.get(i);
+			if (latticeArray != null && latticeArray.get(i) != null) {
+				eojeolArray = latticeArray.get(i).toEojeols();
+			}
 			for (int j = 0; j < eojeolArray.length; j++) {
 				str += "\t" + eojeolArray[j] + "\n";
 			}
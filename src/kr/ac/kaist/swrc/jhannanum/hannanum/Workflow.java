@@ -25,12 +25,14 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import kr.ac.kaist.swrc.jhannanum.comm.PlainSentence;
 import kr.ac.kaist.swrc.jhannanum.comm.Sentence;
 import kr.ac.kaist.swrc.jhannanum.comm.SetOfSentences;
 import kr.ac.kaist.swrc.jhannanum.exception.ResultTypeException;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.MorphAnalyzer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.PosTagger;
 import kr.ac.kaist.swrc.jhannanum.plugin.SupplementPlugin.MorphemeProcessor.MorphemeProcessor;
 import kr.ac.kaist.swrc.jhannanum.plugin.SupplementPlugin.PlainTextProcessor.PlainTextProcessor;
@@ -187,7 +189,13 @@ public class Workflow {
 	 */
 	ArrayList<LinkedBlockingQueue<Sentence>> queuePhase3 = null;
 
-	private String userDicFile;
+	private volatile String userDicFile;
+	
+	/**
+	 * The last document ID given to the documents analyzed with a user dictionary layer.
+	 * The documents without a layer have the ID 0.
+	 */
+	private AtomicInteger lastDocumentID = new AtomicInteger(0);
 	
 	private String context;
 	
@@ -533,6 +541,19 @@ public class Workflow {
 	 * @param document - sequence of sentences separated with newlines.
 	 */
 	public void analyze(String document) {
+		analyze(document, null);
+	}
+	
+	/**
+	 * It adds the specified input text to the input queue of the work flow like analyze(String), and
+	 * the morphological analyzer searches the specified user dictionary layer with its own dictionaries
+	 * for this document only. The layer can be made by loadUserDicLayer() once for each user, and
+	 * used for all the documents of the user.
+	 * 
+	 * @param document - sequence of sentences separated with newlines.
+	 * @param layer - the user dictionary layer for the document, null for no layer
+	 */
+	public void analyze(String document, UserDicLayer layer) {
 		String[] strArray = document.split("\n");
 		LinkedBlockingQueue<PlainSentence> queue = queuePhase1.get(0);
 		
@@ -540,10 +561,12 @@ public class Workflow {
 			return;
 		}
 		
+		int documentID = nextDocumentID(layer);
+		
 		for (int i = 0; i < strArray.length - 1; i++) {
-			queue.add(new PlainSentence(0, i, false, strArray[i].trim()));
+			queue.add(newPlainSentence(documentID, i, false, strArray[i].trim(), layer));
 		}
-		queue.add(new PlainSentence(0, strArray.length - 1, true, strArray[strArray.length - 1].trim()));
+		queue.add(newPlainSentence(documentID, strArray.length - 1, true, strArray[strArray.length - 1].trim(), layer));
 		
 		if (!isThreadMode) {
 			analyzeInSingleThread(); 
@@ -564,6 +587,19 @@ public class Workflow {
 	 * @throws IOException
 	 */
 	public void analyze(File document) throws IOException {
+		analyze(document, null);
+	}
+	
+	/**
+	 * It adds the specified input text to the input queue of the work flow like analyze(File), and
+	 * the morphological analyzer searches the specified user dictionary layer with its own dictionaries
+	 * for this document only.
+	 * 
+	 * @param document - the path for the text file to be analyzed
+	 * @param layer - the user dictionary layer for the document, null for no layer
+	 * @throws IOException
+	 */
+	public void analyze(File document, UserDicLayer layer) throws IOException {
 		BufferedReader br = new BufferedReader(new FileReader(document));
 		LinkedBlockingQueue<PlainSentence> queue = queuePhase1.get(0);
 		
@@ -571,14 +607,15 @@ public class Workflow {
 			return;
 		}
 		
+		int documentID = nextDocumentID(layer);
 		String line = null;
 		int i = 0;
 		
 		while ((line = br.readLine()) != null) {
 			if (br.ready()) {
-				queue.add(new PlainSentence(0, i++, false, line.trim()));
+				queue.add(newPlainSentence(documentID, i++, false, line.trim(), layer));
 			} else {
-				queue.add(new PlainSentence(0, i++, true, line.trim()));
+				queue.add(newPlainSentence(documentID, i++, true, line.trim(), layer));
 				break;
 			}
 		}
@@ -590,6 +627,38 @@ public class Workflow {
 		}
 	}
 	
+	/**
+	 * Gives a new document ID to the document with a user dictionary layer. It can be called by many threads.
+	 * @param layer - the user dictionary layer, null for no layer
+	 * @return the new document ID, 0 if there is no layer
+	 */
+	private int nextDocumentID(UserDicLayer layer) {
+		if (layer == null) {
+			return 0;
+		}
+		int id;
+		while ((id = lastDocumentID.incrementAndGet()) <= 0) {
+			lastDocumentID.compareAndSet(id, 0);
+		}
+		return id;
+	}
+	
+	/**
+	 * Makes the plain sentence which carries the user dictionary layer of its document, so the layer
+	 * reaches the morphological analyzer with the sentence and nothing is left when a sentence is dropped.
+	 * @param documentID - ID of the document which the sentence belongs to
+	 * @param sentenceID - ID of the sentence
+	 * @param endOfDocument - true: the sentence is the last one of the document
+	 * @param sentence - the plain sentence
+	 * @param layer - the user dictionary layer, null for no layer
+	 * @return the plain sentence
+	 */
+	private PlainSentence newPlainSentence(int documentID, int sentenceID, boolean endOfDocument, String sentence, UserDicLayer layer) {
+		PlainSentence ps = new PlainSentence(documentID, sentenceID, endOfDocument, sentence);
+		ps.setUserDicLayer(layer);
+		return ps;
+	}
+	
 	/**
 	 * Returns the analysis result for one sentence at the top of the result queue. You can call this method
 	 * repeatedly to get the result for remaining sentences in the input document. If there is no result,
@@ -622,7 +691,10 @@ public class Workflow {
 					throw new ResultTypeException(outputPhaseNum);
 				}
 				LinkedBlockingQueue<SetOfSentences> queue = queuePhase2.get(outputQueueNum);
-				a = (T)queue.take();
+				SetOfSentences sos = queue.take();
+				// the results are given as the eojeol lists even if the analyzer made the morpheme lattices
+				sos.expandLattices();
+				a = (T)sos;
 			} else if (Sentence.class.equals(objClass)) {
 				if (outputPhaseNum != 3) {
 					throw new ResultTypeException(outputPhaseNum);
@@ -722,6 +794,7 @@ public class Workflow {
 					if(sos == null){
 						break;
 					}
+					sos.expandLattices();
 					list.add((T)sos);
 					if (sos.isEndOfDocument()) {
 						break;
@@ -832,17 +905,23 @@ public class Workflow {
 			outQueue1 = queuePhase1.get(i+1);
 			
 			while ((ps = inQueue1.poll()) != null) {
+				// the plug-in may make new sentences, which take the layer of the input
+				UserDicLayer layer = ps.getUserDicLayer();
+				
 				if ((ps = plainTextProcessors[i].doProcess(ps)) != null) {
+					ps.setUserDicLayer(layer);
 					outQueue1.add(ps);
 				}
 				
 				while (plainTextProcessors[i].hasRemainingData()) {
 					if ((ps = plainTextProcessors[i].doProcess(null)) != null) {
+						ps.setUserDicLayer(layer);
 						outQueue1.add(ps);
 					}
 				}
 				
 				if ((ps = plainTextProcessors[i].flush()) != null) {
+					ps.setUserDicLayer(layer);
 					outQueue1.add(ps);
 				}
 			}
@@ -913,8 +992,48 @@ public class Workflow {
 		}
 	}
 	
+	/**
+	 * Reloads the user dictionary of the morphological analyzer. The new dictionary is built aside and
+	 * replaces the current one at once, so it can be called while the work flow is analyzing documents.
+	 * @param path - the file path of the user dictionary
+	 * @throws IOException
+	 */
 	public void reloadUserDic(String path) throws IOException{
 		morphAnalyzer.loadUserDic(path);
 		this.userDicFile = path;
 	}
+	
+	/**
+	 * Adds a morpheme to the user dictionary of the morphological analyzer without reloading the dictionary.
+	 * It can be called while the work flow is analyzing documents like reloadUserDic().
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: added, false: the tag is not valid
+	 */
+	public boolean addEntry(String word, String tag) {
+		return morphAnalyzer.addEntry(word, tag);
+	}
+	
+	/**
+	 * Removes a morpheme from the user dictionary of the morphological analyzer without reloading the dictionary.
+	 * It can be called while the work flow is analyzing documents like reloadUserDic().
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: removed, false: the morpheme with the tag is not in the user dictionary
+	 */
+	public boolean removeEntry(String word, String tag) {
+		return morphAnalyzer.removeEntry(word, tag);
+	}
+	
+	/**
+	 * Loads a user dictionary as a layer, which can be given to analyze() for the documents of a user.
+	 * The layer is a small dictionary, and the other resources of the work flow are not loaded again,
+	 * so many users can have their own layers on one work flow.
+	 * @param path - the file path of the user dictionary
+	 * @return the user dictionary layer
+	 * @throws IOException
+	 */
+	public UserDicLayer loadUserDicLayer(String path) throws IOException {
+		return morphAnalyzer.loadUserDicLayer(path);
+	}
 }
@@ -24,24 +24,32 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.share.StringMap;
+
 /**
  * This class is the data structure for the pre-analyzed dictionary.
  * 
+ * The analysis results are parsed into the morphemes and the tags when the dictionary is loaded,
+ * so the look-up only makes the eojeols from them.
+ * 
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class AnalyzedDic {
-	private Hashtable<String, String> dictionary;
+	/** the pre-analyzed eojeols, which are not modified after loading, so the look-ups need no lock */
+	private StringMap<Eojeol[]> dictionary;
 	
 	/**
 	 * Constructor.
 	 */
 	public AnalyzedDic() {
-		dictionary = new Hashtable<String, String>();
+		dictionary = new StringMap<Eojeol[]>();
 	}
 
 	/**
@@ -54,7 +62,7 @@ public class AnalyzedDic {
 	 * @throws IOException
 	 */
 	public AnalyzedDic(String dictionaryFileName) throws UnsupportedEncodingException, FileNotFoundException, IOException {
-		dictionary = new Hashtable<String, String>();
+		dictionary = new StringMap<Eojeol[]>();
 		
 		this.readDic(dictionaryFileName);
 	}
@@ -63,16 +71,51 @@ public class AnalyzedDic {
 	 * Cleans the data in the hash table.
 	 */
 	public void clear() {
-		dictionary.clear();
+		dictionary = new StringMap<Eojeol[]>();
 	}
 	
 	/**
-	 * Returns the contents according to the specified item.
+	 * Returns the analysis results of the specified item. The eojeols are made for each call
+	 * since the post-processing modifies the morphemes of them, but the dictionary contents
+	 * are not parsed again.
 	 * @param item - item to search
-	 * @return the dictionary contents for the search item
+	 * @return the morphologically analyzed eojeols for the search item, null if it is not in the dictionary
+	 */
+	public Eojeol[] get(String item) {
+		Eojeol[] analysis = dictionary.get(item);
+		if (analysis == null) {
+			return null;
+		}
+		
+		Eojeol[] res = new Eojeol[analysis.length];
+		for (int i = 0; i < analysis.length; i++) {
+			res[i] = new Eojeol(analysis[i].getMorphemes().clone(), analysis[i].getTags().clone());
+		}
+		return res;
+	}
+	
+	/**
+	 * Parses the dictionary contents, e.g. "가/pvg+는/etm^가/jcs", into the eojeols.
+	 * @param value - the dictionary contents, where the analysis results are separated with '^'
+	 * @return the morphologically analyzed eojeols
 	 */
-	public String get(String item) {
-		return dictionary.get(item);
+	private Eojeol[] parse(String value) {
+		ArrayList<Eojeol> eojeols = new ArrayList<Eojeol>();
+		StringTokenizer st = new StringTokenizer(value, "^");
+		while (st.hasMoreTokens()) {
+			String analyzed = st.nextToken();
+			String[] tokens = analyzed.split("\\+|/");
+			
+			String[] morphemes = new String[tokens.length / 2];
+			String[] tags = new String[tokens.length / 2];
+			
+			for (int i = 0, j = 0; i < morphemes.length; i++) {
+				morphemes[i] = tokens[j++].intern();
+				tags[i] = tokens[j++].intern();
+			}
+			eojeols.add(new Eojeol(morphemes, tags));
+		}
+		return eojeols.toArray(new Eojeol[0]);
 	}
 	
 	/**
@@ -92,7 +135,7 @@ public class AnalyzedDic {
 	
 	private void readDicBuf(BufferedReader in) throws IOException{
 		String str = "";
-		dictionary.clear();
+		HashMap<String, Eojeol[]> map = new HashMap<String, Eojeol[]>();
 		
 		while ((str = in.readLine()) != null) {
 			str.trim();
@@ -106,10 +149,11 @@ public class AnalyzedDic {
 			while (tok.hasMoreTokens()) {
 				value += tok.nextToken() + "\n";
 			}
-			dictionary.put(key, value.trim());
+			map.put(key, parse(value.trim()));
 		}	
 		
 		in.close();
+		dictionary = new StringMap<Eojeol[]>(map);
 	}
 	
 	
@@ -0,0 +1,293 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.StringTokenizer;
+
+import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.share.JSONReader;
+
+/**
+ * Corpus profiler which builds the pre-analyzed dictionary for the eojeols costing the most.
+ *
+ * It counts the eojeols in the corpus, analyzes each type of them with the morpheme chart, and
+ * ranks the types by the frequency times the time of the chart analysis. The top N types are
+ * written with the entries of the current pre-analyzed dictionary in its format, e.g.
+ * "가는\t가/pvg+는/etm^갈/pvg+는/etm", so the analyzer finds them without the chart analysis.
+ *
+ * The eojeols are analyzed without the user dictionary, so the user dictionary changes are not
+ * hidden by the entries except for the eojeols which are already known to the system dictionary.
+ * The eojeols with the unknown morphemes are not written.
+ *
+ * Usage: AnalyzedDicProfiler baseDir configFile corpusFile outputFile topN
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class AnalyzedDicProfiler {
+	/** the number of times each eojeol is analyzed to measure the time */
+	final private static int MEASURE_COUNT = 3;
+
+	/**
+	 * The statistics of an eojeol type.
+	 */
+	private static class Profile {
+		/** the plain eojeol */
+		String eojeol;
+
+		/** the number of occurrences in the corpus */
+		int freq;
+
+		/** the time of the chart analysis in nanoseconds */
+		long cost;
+
+		/** the analysis result in the format of the pre-analyzed dictionary */
+		String analysis;
+	}
+
+	/** the morpheme chart for the analysis */
+	private MorphemeChart chart = null;
+
+	/** the list of eojeols analyzed by the chart */
+	private LinkedList<Eojeol> eojeolList = null;
+
+	/** the name of the tag for unknown morphemes */
+	private String unkTag = null;
+
+	/**
+	 * Constructor. It builds the morpheme chart with the dictionaries of the analyzer configuration.
+	 * @param sharedDic - the dictionaries of the analyzer
+	 */
+	public AnalyzedDicProfiler(SharedDic sharedDic) {
+		eojeolList = new LinkedList<Eojeol>();
+		chart = new MorphemeChart(sharedDic.tagSet, sharedDic.connection, sharedDic.systemDic, null,
+				new NumberDic(sharedDic.tagSet), eojeolList);
+		chart.setConnectionNot(sharedDic.connectionNot);
+		unkTag = sharedDic.tagSet.getTagName(sharedDic.tagSet.unkTag);
+	}
+
+	/**
+	 * Counts the eojeols of the corpus, which are separated with spaces and tabs like the analyzer does.
+	 * @param corpusFile - the corpus file in UTF-8
+	 * @param total - total[0] is set to the number of eojeols in the corpus
+	 * @return the number of occurrences of each eojeol
+	 * @throws IOException
+	 */
+	private HashMap<String, Profile> count(String corpusFile, long[] total) throws IOException {
+		HashMap<String, Profile> profiles = new HashMap<String, Profile>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(corpusFile), "UTF-8"));
+		String line = null;
+
+		while ((line = br.readLine()) != null) {
+			StringTokenizer st = new StringTokenizer(line, " \t");
+			while (st.hasMoreTokens()) {
+				String eojeol = st.nextToken();
+				Profile p = profiles.get(eojeol);
+				if (p == null) {
+					p = new Profile();
+					p.eojeol = eojeol;
+					profiles.put(eojeol, p);
+				}
+				p.freq++;
+				total[0]++;
+			}
+		}
+		br.close();
+
+		return profiles;
+	}
+
+	/**
+	 * Analyzes the eojeol with the morpheme chart, and measures the time of the analysis.
+	 * @param p - the eojeol type, whose cost and analysis are set
+	 */
+	private void analyze(Profile p) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURE_COUNT; i++) {
+			long start = System.nanoTime();
+			eojeolList.clear();
+			chart.init(p.eojeol);
+			chart.analyze();
+			chart.getResult();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		p.cost = best;
+		p.analysis = format(eojeolList);
+	}
+
+	/**
+	 * Makes the analysis result in the format of the pre-analyzed dictionary.
+	 * @param eojeols - the eojeols analyzed
+	 * @return the result like "가/pvg+는/etm^갈/pvg+는/etm", null if it can't be written in the dictionary
+	 */
+	private String format(LinkedList<Eojeol> eojeols) {
+		if (eojeols.isEmpty()) {
+			return null;
+		}
+
+		StringBuilder buf = new StringBuilder();
+		for (Eojeol eojeol : eojeols) {
+			if (buf.length() > 0) {
+				buf.append('^');
+			}
+			for (int i = 0; i < eojeol.length; i++) {
+				String morpheme = eojeol.getMorpheme(i);
+				String tag = eojeol.getTag(i);
+				if (tag.equals(unkTag) || !isPlain(morpheme)) {
+					return null;
+				}
+				if (i > 0) {
+					buf.append('+');
+				}
+				buf.append(morpheme).append('/').append(tag);
+			}
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Checks whether the morpheme has no delimiter of the pre-analyzed dictionary.
+	 * @param morpheme - the morpheme to check
+	 * @return true: the morpheme can be written, false: otherwise
+	 */
+	private static boolean isPlain(String morpheme) {
+		for (int i = 0; i < morpheme.length(); i++) {
+			char c = morpheme.charAt(i);
+			if (c == '+' || c == '/' || c == '^' || c == '\t' || c == ' ') {
+				return false;
+			}
+		}
+		return morpheme.length() > 0;
+	}
+
+	/**
+	 * Profiles the corpus, and writes the pre-analyzed dictionary.
+	 * @param args - the base directory, the analyzer configuration file, the corpus file, the dictionary file to write,
+	 * 		and the number of eojeol types to add
+	 */
+	public static void main(String[] args) {
+		if (args.length != 5) {
+			System.err.println("Usage: AnalyzedDicProfiler baseDir configFile corpusFile outputFile topN");
+			System.exit(1);
+		}
+
+		try {
+			long start = System.currentTimeMillis();
+			String baseDir = args[0];
+			int topN = Integer.parseInt(args[4]);
+
+			JSONReader json = new JSONReader(baseDir + "/" + args[1]);
+			String fileDicAnalyzed = baseDir + "/" + json.getValue("dic_analyzed");
+			String fileDicSystemImage = null;
+			if (json.getValue("dic_system_image", null) != null) {
+				fileDicSystemImage = baseDir + "/" + json.getValue("dic_system_image");
+			}
+			SharedDic sharedDic = SharedDic.acquire(null, baseDir + "/" + json.getValue("tagset"),
+					baseDir + "/" + json.getValue("connections"), baseDir + "/" + json.getValue("connections_not"),
+					fileDicAnalyzed, baseDir + "/" + json.getValue("dic_system"), fileDicSystemImage,
+					json.getValue("dic_system_type", SharedDic.DIC_SYSTEM_TYPE_DAT));
+
+			AnalyzedDicProfiler profiler = new AnalyzedDicProfiler(sharedDic);
+			long[] total = new long[1];
+			HashMap<String, Profile> profiles = profiler.count(args[2], total);
+
+			// the current entries are kept as they are
+			ArrayList<String> lines = new ArrayList<String>();
+			HashSet<String> known = new HashSet<String>();
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileDicAnalyzed), "UTF-8"));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				lines.add(line);
+				known.add(new StringTokenizer(line, "\t").nextToken());
+			}
+			br.close();
+
+			ArrayList<Profile> candidates = new ArrayList<Profile>();
+			for (Profile p : profiles.values()) {
+				if (!known.contains(p.eojeol)) {
+					candidates.add(p);
+				}
+			}
+
+			// the first pass warms up the analyzer, so the times measured are comparable
+			for (Profile p : candidates) {
+				profiler.analyze(p);
+			}
+			long totalCost = 0;
+			for (Profile p : candidates) {
+				profiler.analyze(p);
+				totalCost += p.cost * p.freq;
+			}
+
+			Collections.sort(candidates, new Comparator<Profile>() {
+				public int compare(Profile p1, Profile p2) {
+					double s1 = (double)p1.cost * p1.freq;
+					double s2 = (double)p2.cost * p2.freq;
+					return (s1 < s2) ? 1 : ((s1 > s2) ? -1 : p1.eojeol.compareTo(p2.eojeol));
+				}
+			});
+
+			int added = 0;
+			long coveredFreq = 0;
+			long coveredCost = 0;
+			for (int i = 0; i < candidates.size() && added < topN; i++) {
+				Profile p = candidates.get(i);
+				if (p.analysis == null) {
+					continue;
+				}
+				lines.add(p.eojeol + "\t" + p.analysis);
+				coveredFreq += p.freq;
+				coveredCost += p.cost * p.freq;
+				added++;
+			}
+
+			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[3]), "UTF-8"));
+			for (String l : lines) {
+				bw.write(l);
+				bw.write("\n");
+			}
+			bw.close();
+
+			SharedDic.release(sharedDic);
+
+			System.out.println(args[3] + ": " + lines.size() + " entries (" + added + " added), "
+					+ profiles.size() + " types, " + total[0] + " eojeols, the added types cover "
+					+ String.format("%.1f%%", (total[0] == 0) ? 0.0 : 100.0 * coveredFreq / total[0]) + " of eojeols and "
+					+ String.format("%.1f%%", (totalCost == 0) ? 0.0 : 100.0 * coveredCost / totalCost) + " of the chart time, "
+					+ (System.currentTimeMillis() - start) + " ms");
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
\ No newline at end of file
@@ -17,14 +17,20 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.StringTokenizer;
 
 import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.comm.MorphemeLattice;
 import kr.ac.kaist.swrc.jhannanum.comm.PlainSentence;
 import kr.ac.kaist.swrc.jhannanum.comm.SetOfSentences;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.MorphAnalyzer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer.Trie.INFO;
+import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.JSONReader;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
@@ -45,7 +51,7 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	private AnalyzedDic analyzedDic = null;
 	
 	/** Default morpheme dictionary. */
-	private Trie systemDic = null;
+	private MorphemeDic systemDic = null;
 	
 	/** Additional morpheme dictionary that users can modify for their own purpose. */
 	private Trie userDic = null;
@@ -62,11 +68,14 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	/** Impossible connection rules. */
 	private ConnectionNot connectionNot = null;
 
+	/** The read-only dictionaries shared with the other analyzers. */
+	private SharedDic sharedDic = null;
+
+	/** The scorer of the best results shared with the other analyzers, null if not used. */
+	private HmmScorer scorer = null;
+
 	/** Lattice-style morpheme chart. */
 	private MorphemeChart chart = null;
-	
-	/** SIMTI structure for reverse segment position. */
-	private Simti simti = null;
 
 	/** The file path for the impossible connection rules. */
 	private String fileConnectionsNot = "";
@@ -80,6 +89,12 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	/** The file path for the default morpheme dictionary. */
 	private String fileDicSystem = "";
 
+	/** The file path for the compiled image of the default morpheme dictionary. */
+	private String fileDicSystemImage = null;
+
+	/** The type of the default morpheme dictionary, 'dat' or 'dawg'. */
+	private String dicSystemType = SharedDic.DIC_SYSTEM_TYPE_DAT;
+
 	/** The file path for the user morpheme dictionary. */
 	private String fileDicUser = "";
 
@@ -89,9 +104,27 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	/** Eojeol list */
 	private LinkedList<Eojeol> eojeolList = null;
 	
+	/** The cache of the analysis results, null if it is not used */
+	private EojeolCache cache = null;
+	
+	/** The version of the user dictionary, which is increased whenever the dictionary is changed */
+	private volatile int userDicVersion = 0;
+	
+	/** The version of the user dictionary which the results in the cache were analyzed with */
+	private int cacheVersion = 0;
+	
 	/** Post-processor to deal with some exceptions */
 	private PostProcessor postProc = null;
 	
+	/** true: the results of the chart are handed over as the morpheme lattices instead of the eojeol lists */
+	private boolean useLattice = false;
+	
+	/** true: the last eojeol analyzed by the chart ran out of the work budget */
+	private boolean budgetExceeded = false;
+	
+	/** The number of eojeols which ran out of the work budget */
+	private volatile long budgetExceededCount = 0;
+	
 	/**
 	 * Returns the name of the morphological analysis plug-in.
 	 * @return the name of the morphological analysis plug-in.
@@ -103,38 +136,61 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	/**
 	 * It processes the input plain eojeol by analyzing it or searching the pre-analyzed dictionary.
 	 * @param plainEojeol - plain eojeol to analyze
+	 * @param useCache - true: the cache of the analysis results is searched and updated
 	 * @return the morphologically analyzed eojeol list
 	 */
-	private Eojeol[] processEojeol(String plainEojeol) {
-		String analysis = analyzedDic.get(plainEojeol);
-
-		eojeolList.clear();
+	private Eojeol[] processEojeol(String plainEojeol, boolean useCache) {
+		Eojeol[] analysis = analyzedDic.get(plainEojeol);
+		budgetExceeded = false;
 		
 		if (analysis != null) {
 			// the eojeol was registered in the pre-analyzed dictionary
-			StringTokenizer st = new StringTokenizer(analysis, "^");
-			while (st.hasMoreTokens()) {
-				String analyzed = st.nextToken();
-				String[] tokens = analyzed.split("\\+|/");
-				
-				String[] morphemes = new String[tokens.length / 2];
-				String[] tags = new String[tokens.length / 2];
-				
-				for (int i = 0, j = 0; i < morphemes.length; i++) {
-					morphemes[i] = tokens[j++];
-					tags[i] = tokens[j++];
-				}
-				Eojeol eojeol = new Eojeol(morphemes, tags);
-				eojeolList.add(eojeol);
+			return analysis;
+		}
+		
+		if (useCache) {
+			// the results analyzed with the previous user dictionary are dropped
+			int version = userDicVersion;
+			if (version != cacheVersion) {
+				cache.clear();
+				cacheVersion = version;
+			}
+			if ((analysis = cache.get(plainEojeol)) != null) {
+				return analysis;
 			}
-		} else {
-			// analyze the input plain eojeol
-			chart.init(plainEojeol);
-			chart.analyze();
-			chart.getResult();
 		}
 		
-		return eojeolList.toArray(new Eojeol[0]);
+		// analyze the input plain eojeol
+		eojeolList.clear();
+		chart.init(plainEojeol);
+		chart.analyze();
+		chart.getResult();
+		
+		analysis = eojeolList.toArray(new Eojeol[0]);
+		budgetExceeded = chart.isBudgetExceeded();
+		if (budgetExceeded) {
+			// the results cut by the work budget are not cached, since the cut depends on the time
+			budgetExceededCount++;
+		} else if (useCache) {
+			cache.put(plainEojeol, analysis);
+		}
+		return analysis;
+	}
+	
+	/**
+	 * Returns the cache of the analysis results, which has the hit and miss counts.
+	 * @return the cache, null if the cache is not used
+	 */
+	public EojeolCache getEojeolCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the number of eojeols which ran out of the work budget, and were analyzed as one unknown morpheme.
+	 * @return the number of eojeols
+	 */
+	public long getBudgetExceededCount() {
+		return budgetExceededCount;
 	}
 
 	/**
@@ -143,6 +199,12 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	 */
 	@Override
 	public SetOfSentences morphAnalyze(PlainSentence ps) {
+		MorphemeDic documentDic = getDocumentDic(ps.getUserDicLayer());
+		chart.setDocumentDic(documentDic);
+		
+		// the results with the dictionary of a document are not cached
+		boolean useCache = (cache != null && documentDic == null);
+		
 		StringTokenizer st = new StringTokenizer(ps.getSentence(), " \t");
 		
 		String plainEojeol = null;
@@ -150,17 +212,49 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 		
 		ArrayList<String> plainEojeolArray = new ArrayList<String>(eojeolNum);
 		ArrayList<Eojeol[]> eojeolSetArray = new ArrayList<Eojeol[]>(eojeolNum);
+		ArrayList<MorphemeLattice> latticeArray = useLattice ? new ArrayList<MorphemeLattice>(eojeolNum) : null;
+		BitSet exceeded = null;
 				
 		while (st.hasMoreTokens()) {
 			plainEojeol = st.nextToken();
 			
 			plainEojeolArray.add(plainEojeol);
-			eojeolSetArray.add(processEojeol(plainEojeol));
+			if (latticeArray == null) {
+				eojeolSetArray.add(processEojeol(plainEojeol, useCache));
+			} else {
+				// the eojeols in the pre-analyzed dictionary keep their eojeol lists
+				Eojeol[] analysis = analyzedDic.get(plainEojeol);
+				MorphemeLattice lattice = null;
+				budgetExceeded = false;
+				if (analysis == null) {
+					chart.init(plainEojeol);
+					chart.analyze();
+					lattice = chart.getLattice(postProc);
+					analysis = new Eojeol[0];
+					if (budgetExceeded = chart.isBudgetExceeded()) {
+						budgetExceededCount++;
+					}
+				}
+				eojeolSetArray.add(analysis);
+				latticeArray.add(lattice);
+			}
+			
+			if (budgetExceeded) {
+				if (exceeded == null) {
+					exceeded = new BitSet();
+				}
+				exceeded.set(eojeolSetArray.size() - 1);
+			}
 		}
 		
 		SetOfSentences sos = new SetOfSentences(ps.getDocumentID(), ps.getSentenceID(),
 				ps.isEndOfDocument(), plainEojeolArray, eojeolSetArray);
+		sos.setLatticeArray(latticeArray);
+		for (int i = (exceeded == null) ? -1 : exceeded.nextSetBit(0); i >= 0; i = exceeded.nextSetBit(i + 1)) {
+			sos.setBudgetExceeded(i);
+		}
 
+		// the lattices were post processed while they were made
 		sos = postProc.doPostProcessing(sos);
 
 		return sos;
@@ -176,6 +270,10 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 		JSONReader json = new JSONReader(baseDir + "/" + configFile);
 		
 		fileDicSystem = baseDir + "/" + json.getValue("dic_system");
+		if (json.getValue("dic_system_image", null) != null) {
+			fileDicSystemImage = baseDir + "/" + json.getValue("dic_system_image");
+		}
+		dicSystemType = json.getValue("dic_system_type", SharedDic.DIC_SYSTEM_TYPE_DAT);
 		fileDicUser = baseDir + "/" + json.getValue("dic_user");
 		System.out.println(fileDicUser);
 		fileConnections = baseDir + "/" + json.getValue("connections");
@@ -183,32 +281,49 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 		fileDicAnalyzed = baseDir + "/" + json.getValue("dic_analyzed");
 		fileTagSet = baseDir + "/" + json.getValue("tagset");
 
-		tagSet = new TagSet();
-		tagSet.init(fileTagSet, TagSet.TAG_SET_KAIST);
+		// the read-only dictionaries are loaded once, and shared by the analyzers using the same files
+		sharedDic = SharedDic.acquire(null, fileTagSet, fileConnections, fileConnectionsNot, fileDicAnalyzed,
+				fileDicSystem, fileDicSystemImage, dicSystemType);
+		tagSet = sharedDic.tagSet;
+		connection = sharedDic.connection;
+		connectionNot = sharedDic.connectionNot;
+		analyzedDic = sharedDic.analyzedDic;
+		systemDic = sharedDic.systemDic;
 
-		connection = new Connection();
-		connection.init(fileConnections, tagSet.getTagCount(), tagSet);
-
-		connectionNot = new ConnectionNot();
-		connectionNot.init(fileConnectionsNot, tagSet);
-
-		analyzedDic = new AnalyzedDic();
-		analyzedDic.readDic(fileDicAnalyzed);
-
-		systemDic = new Trie(Trie.DEFAULT_TRIE_BUF_SIZE_SYS);
-		systemDic.read_dic(fileDicSystem, tagSet);
-
-		userDic = new Trie(Trie.DEFAULT_TRIE_BUF_SIZE_USER);
+		userDic = new Trie();
 		userDic.read_dic(fileDicUser, tagSet);
 
-		numDic = new NumberDic();
-		simti = new Simti();
-		simti.init();
+		numDic = new NumberDic(tagSet);
 		eojeolList = new LinkedList<Eojeol>();
 		
-		chart = new MorphemeChart(tagSet, connection, systemDic, userDic, numDic, simti, eojeolList);
+		chart = new MorphemeChart(tagSet, connection, systemDic, userDic, numDic, eojeolList);
+		// 0: all the analysis results, otherwise only the best results are generated up to the number
+		// the results are ranked without the eojeols around, so a number which cuts the results can change the tagging
+		int maxCandidates = Integer.parseInt(json.getValue("max_candidates", "0"));
+		chart.setMaxCandidates(maxCandidates);
+		chart.setConnectionNot(connectionNot);
+		// the work budget for each eojeol, 0: no limit, which is the default
+		// budget_time_ms makes the results nondeterministic, since they depend on the load of the machine
+		chart.setWorkBudget(Integer.parseInt(json.getValue("budget_morphemes", "0")),
+				Integer.parseInt(json.getValue("budget_connections", "0")),
+				Integer.parseInt(json.getValue("budget_results", "0")),
+				Long.parseLong(json.getValue("budget_time_ms", "0")) * 1000000L);
+		
+		int cacheSize = Integer.parseInt(json.getValue("eojeol_cache_size", String.valueOf(EojeolCache.DEFAULT_CACHE_SIZE)));
+		if (cacheSize > 0) {
+			cache = new EojeolCache(cacheSize);
+		}
 		
 		postProc = new PostProcessor();
+		// true: the results are handed over as the morpheme lattices, which needs the tagger to support them
+		useLattice = Boolean.parseBoolean(json.getValue("lattice", "false"));
+		
+		// the best results are ranked with the statistic data of the tagger, or the fewest morphemes first without it
+		if ((maxCandidates > 0 || useLattice) && json.getValue("pwt.pos", null) != null && json.getValue("ptt.pos", null) != null) {
+			scorer = SharedDic.acquireScorer(null, baseDir + "/" + json.getValue("pwt.pos"),
+					baseDir + "/" + json.getValue("ptt.pos"));
+			chart.setScorer(scorer);
+		}
 	}
 
 	/**
@@ -216,10 +331,101 @@ public class ChartMorphAnalyzer implements MorphAnalyzer {
 	 */
 	@Override
 	public void shutdown() {
+		SharedDic.release(sharedDic);
+		sharedDic = null;
+		if (scorer != null) {
+			SharedDic.releaseScorer(scorer);
+			scorer = null;
+		}
+	}
+
+	/**
+	 * Reloads the user dictionary. The new dictionary is built aside and published to the chart at once,
+	 * so the analysis in progress keeps using the previous dictionary until its eojeol is done.
+	 * @param path - the file path of the user dictionary, null keeps the current dictionary
+	 */
+	@Override
+	public synchronized void loadUserDic(String path) throws IOException {
+		if (path == null) {
+			return;
+		}
+		Trie newDic = new Trie();
+		newDic.read_dic(path, tagSet);
+		
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+	}
+
+	/**
+	 * Adds a morpheme to the user dictionary without reloading the whole dictionary.
+	 * The change is made on a copy of the dictionary, which is published to the chart when it is done.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: added, false: the tag is not in the tag set
+	 */
+	@Override
+	public synchronized boolean addEntry(String word, String tag) {
+		Trie newDic = (userDic == null) ? new Trie() : userDic.copy();
+		INFO info = newDic.make_info(tag, tagSet);
+		if (info == null || newDic.store(Code.toTripleArray(word), info) != 0) {
+			return false;
+		}
+
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+		return true;
 	}
 
+	/**
+	 * Removes a morpheme from the user dictionary without reloading the whole dictionary.
+	 * The change is made on a copy of the dictionary, which is published to the chart when it is done.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: removed, false: the morpheme with the tag is not in the user dictionary
+	 */
 	@Override
-	public void loadUserDic(String Path) {
-		// TODO Auto-generated method stub
+	public synchronized boolean removeEntry(String word, String tag) {
+		if (userDic == null) {
+			return false;
+		}
+		Trie newDic = userDic.copy();
+		INFO info = newDic.make_info(tag, tagSet);
+		if (info == null || newDic.remove(Code.toTripleArray(word), info) != 0) {
+			return false;
+		}
+
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+		return true;
+	}
+
+	/**
+	 * Loads a user dictionary as a layer, which is a small trie independent of the shared dictionaries.
+	 * @param path - the file path of the user dictionary
+	 * @return the user dictionary layer
+	 * @throws IOException
+	 */
+	@Override
+	public UserDicLayer loadUserDicLayer(String path) throws IOException {
+		// starts with no free node, so the buffer is sized from the number of entries by read_dic()
+		Trie dic = new Trie(Trie.START_NODE + 2);
+		dic.read_dic(path, tagSet);
+		return dic;
+	}
+
+	/**
+	 * Returns the dictionary of the user dictionary layer which the sentence carries.
+	 * @param layer - the layer made by loadUserDicLayer(), null for no layer
+	 * @return the dictionary of the layer, null if there is no layer or it was not made by this analyzer
+	 */
+	private MorphemeDic getDocumentDic(UserDicLayer layer) {
+		// a layer made by another analyzer is ignored for every sentence of the document
+		if (!(layer instanceof MorphemeDic)) {
+			return null;
+		}
+		return (MorphemeDic)layer;
 	}
 }
@@ -57,8 +57,20 @@ public class Connection {
 	/** Start tag. */
 	public String startTag = null;
 	
-	/** The connectoin table which has the connection information ofo morphemes */
-	private boolean[][] connectionTable = null;
+	/** The connection rule: the morphemes can not appear consecutively */
+	final private static byte CONNECTION_NONE = 0;
+	
+	/** The connection rule: the morphemes can appear consecutively */
+	final private static byte CONNECTION_ALL = 1;
+	
+	/** The connection rule: the nouns can appear consecutively only if the first is 4 or longer and the second is 2 or longer */
+	final private static byte CONNECTION_LONG = 2;
+	
+	/** The connectoin table which has the connection rule of the tags at [tag1 * tagCount + tag2] */
+	private byte[] connectionTable = null;
+	
+	/** The number of the tags in the connection table */
+	private int tagCount = 0;
 	
 	/**
 	 * Constructor.
@@ -85,20 +97,12 @@ public class Connection {
 	 * @return true: the two consecutive morpheme tags can appear, false: they cannot appear
 	 */
 	public boolean checkConnection(TagSet tagSet, int tag1, int tag2, int len1, int len2, int typeOfTag2) {
-		String tag1Name = tagSet.getTagName(tag1);
-		String tag2Name = tagSet.getTagName(tag2);
+		byte rule = connectionTable[tag1 * tagCount + tag2];
 		
-		if ((tag1Name.startsWith("nc") || tag1Name.charAt(0) == 'f') &&
-				tag2Name.charAt(0) == 'n') {
-			if (tag2Name.startsWith("nq")) {
-				return false;
-			} else if (len1 < 4 || len2 < 2) {
-				return false;
-			}
+		if (rule == CONNECTION_NONE || (rule == CONNECTION_LONG && (len1 < 4 || len2 < 2))) {
+			return false;
 		}
-		
-//		System.err.println(tag1Name + "\t" + tag2Name + ": " + connectionTable[tag1][tag2] + " " + tagSet.checkTagType(nextTagType, tag2));
-		return connectionTable[tag1][tag2] && tagSet.checkTagType(typeOfTag2, tag2);
+		return tagSet.checkTagType(typeOfTag2, tag2);
 	}
 	
 	/**
@@ -113,6 +117,7 @@ public class Connection {
 		editor = "";
 		startTag = "";
 		connectionTable = null;
+		tagCount = 0;
 	}
 	
 	/**
@@ -163,13 +168,8 @@ public class Connection {
 		date = "";
 		editor = "";
 		startTag = "";
-		connectionTable = new boolean[tagCount][tagCount];
-		
-		for (int i = 0; i < tagCount; i++) {
-			for (int j = 0; j < tagCount; j++) {
-				connectionTable[i][j] = false;
-			}
-		}
+		this.tagCount = tagCount;
+		connectionTable = new byte[tagCount * tagCount];
 		
 		while ((line = br.readLine()) != null) {
 			StringTokenizer lineTokenizer = new StringTokenizer(line, "\t");
@@ -248,7 +248,7 @@ public class Connection {
 					Iterator<Integer> iterB = tagSetB.iterator();
 					
 					while (iterB.hasNext()) {
-						connectionTable[leftSide][iterB.next()] = true;
+						connectionTable[leftSide * tagCount + iterB.next()] = CONNECTION_ALL;
 					}
 				}
 				
@@ -259,5 +259,40 @@ public class Connection {
 			}
 		}
 		br.close();
+		
+		addNounRules(tagSet);
+	}
+	
+	/**
+	 * Folds the rules for the compound nouns into the connection table, so they are checked without the tag names.
+	 * A common noun or a foreign word can not be followed by a quantitative noun, and it can be followed by the other
+	 * nouns only if the first morpheme is 4 or longer and the second one is 2 or longer.
+	 * @param tagSet - the tag set which is used in the connection rules
+	 */
+	private void addNounRules(TagSet tagSet) {
+		boolean[] noun = new boolean[tagCount];
+		boolean[] quantNoun = new boolean[tagCount];
+		boolean[] compoundHead = new boolean[tagCount];
+		
+		for (int i = 0; i < tagCount; i++) {
+			String tagName = tagSet.getTagName(i);
+			if (tagName != null && tagName.length() > 0) {
+				noun[i] = tagName.charAt(0) == 'n';
+				quantNoun[i] = tagName.startsWith("nq");
+				compoundHead[i] = tagName.startsWith("nc") || tagName.charAt(0) == 'f';
+			}
+		}
+		
+		for (int i = 0; i < tagCount; i++) {
+			if (!compoundHead[i]) {
+				continue;
+			}
+			for (int j = 0; j < tagCount; j++) {
+				int idx = i * tagCount + j;
+				if (noun[j] && connectionTable[idx] != CONNECTION_NONE) {
+					connectionTable[idx] = quantNoun[j] ? CONNECTION_NONE : CONNECTION_LONG;
+				}
+			}
+		}
 	}
 }
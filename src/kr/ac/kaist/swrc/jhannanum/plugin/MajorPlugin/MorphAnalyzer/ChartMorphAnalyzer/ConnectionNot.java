@@ -28,6 +28,7 @@ import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
 /**
@@ -60,12 +61,36 @@ public class ConnectionNot {
 	/** Table for the tags that cannot appear consecutively */
 	private int[][] notTagTable = null;
 	
-	/** Table for the morphemes that cannot appear consecutively */
+	/** Table for the morphemes that cannot appear consecutively, in the triple encoding, null for any morpheme */
 	private String[][] notMorphTable = null;
 	
 	/** The number of impossible connection rules */
 	private int ruleCount = 0;
 	
+	/** The morpheme in the rules which matches any morpheme */
+	final private static String ANY_MORPHEME = "*";
+	
+	/** The kind of the rules: both morphemes are specified */
+	final private static byte RULE_EXACT = 1;
+	
+	/** The kind of the rules: the first morpheme is any morpheme */
+	final private static byte RULE_ANY_FIRST = 2;
+	
+	/** The kind of the rules: the second morpheme is any morpheme */
+	final private static byte RULE_ANY_SECOND = 4;
+	
+	/** The kind of the rules: both morphemes are any morphemes */
+	final private static byte RULE_ANY_BOTH = 8;
+	
+	/** The number of the tags in the tag set */
+	private int tagCount = 0;
+	
+	/** The kinds of the rules for each pair of tags at [tag1 * tagCount + tag2], 0: no rule for the tags */
+	private byte[] pairRules = null;
+	
+	/** The hash table of the rules, which has the index of the rule + 1 on each slot, 0: empty */
+	private int[] ruleHash = null;
+	
 	
 	/**
 	 * Constructor.
@@ -81,11 +106,123 @@ public class ConnectionNot {
 	}
 	
 	/**
-	 * Checks whether the two morphemes may not appear consecutively.
+	 * Checks whether the two morphemes may not appear consecutively. The morphemes are the parts of
+	 * the surface in the triple encoding. The hash table is probed only for the pairs of tags having rules.
+	 * @param tag1 - the tag of the first morpheme
+	 * @param tag2 - the tag of the second morpheme
+	 * @param surface - the surface of the morphemes in the triple encoding
+	 * @param begin1 - the begin of the first morpheme in the surface
+	 * @param end1 - the end of the first morpheme in the surface (exclusive)
+	 * @param begin2 - the begin of the second morpheme in the surface
+	 * @param end2 - the end of the second morpheme in the surface (exclusive)
 	 * @return true: they may appear consecutively, false: they may not appear consecutively
 	 */
-	public boolean checkConnection() {
-		/* It should be updated.s */
+	public boolean checkConnection(int tag1, int tag2, char[] surface, int begin1, int end1, int begin2, int end2) {
+		if (pairRules == null || tag1 >= tagCount || tag2 >= tagCount) {
+			return true;
+		}
+		
+		byte kinds = pairRules[tag1 * tagCount + tag2];
+		if (kinds == 0) {
+			return true;
+		}
+		if ((kinds & RULE_ANY_BOTH) != 0) {
+			return false;
+		}
+		if ((kinds & RULE_EXACT) != 0 && findRule(tag1, tag2, surface, begin1, end1, begin2, end2)) {
+			return false;
+		}
+		if ((kinds & RULE_ANY_FIRST) != 0 && findRule(tag1, tag2, surface, -1, -1, begin2, end2)) {
+			return false;
+		}
+		if ((kinds & RULE_ANY_SECOND) != 0 && findRule(tag1, tag2, surface, begin1, end1, -1, -1)) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Searches the hash table for the rule of the morphemes.
+	 * @param tag1 - the tag of the first morpheme
+	 * @param tag2 - the tag of the second morpheme
+	 * @param surface - the surface of the morphemes in the triple encoding
+	 * @param begin1 - the begin of the first morpheme, -1 for any morpheme
+	 * @param end1 - the end of the first morpheme (exclusive)
+	 * @param begin2 - the begin of the second morpheme, -1 for any morpheme
+	 * @param end2 - the end of the second morpheme (exclusive)
+	 * @return true: the rule exists, false: otherwise
+	 */
+	private boolean findRule(int tag1, int tag2, char[] surface, int begin1, int end1, int begin2, int end2) {
+		int mask = ruleHash.length - 1;
+		int idx = hash(tag1, tag2, hash(surface, begin1, end1), hash(surface, begin2, end2)) & mask;
+		int r;
+		
+		while ((r = ruleHash[idx]) != 0) {
+			r--;
+			if (notTagTable[r][0] == tag1 && notTagTable[r][1] == tag2
+					&& equals(notMorphTable[r][0], surface, begin1, end1)
+					&& equals(notMorphTable[r][1], surface, begin2, end2)) {
+				return true;
+			}
+			idx = (idx + 1) & mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the hash code of the morpheme in the surface.
+	 * @param surface - the surface in the triple encoding
+	 * @param begin - the begin of the morpheme, -1 for any morpheme
+	 * @param end - the end of the morpheme (exclusive)
+	 * @return the hash code
+	 */
+	private static int hash(char[] surface, int begin, int end) {
+		if (begin < 0) {
+			return -1;
+		}
+		int h = 0;
+		for (int i = begin; i < end; i++) {
+			h = 31 * h + surface[i];
+		}
+		return h;
+	}
+	
+	/**
+	 * Returns the hash code of a rule.
+	 * @param tag1 - the tag of the first morpheme
+	 * @param tag2 - the tag of the second morpheme
+	 * @param morph1 - the hash code of the first morpheme
+	 * @param morph2 - the hash code of the second morpheme
+	 * @return the hash code
+	 */
+	private static int hash(int tag1, int tag2, int morph1, int morph2) {
+		int h = ((tag1 * 31 + tag2) * 31 + morph1) * 31 + morph2;
+		h ^= (h >>> 16);
+		h *= 0x85EBCA6B;
+		h ^= (h >>> 13);
+		return h;
+	}
+	
+	/**
+	 * Checks whether the morpheme of a rule is the same with the morpheme in the surface.
+	 * @param morph - the morpheme of the rule, null for any morpheme
+	 * @param surface - the surface in the triple encoding
+	 * @param begin - the begin of the morpheme, -1 for any morpheme
+	 * @param end - the end of the morpheme (exclusive)
+	 * @return true: they are the same, false: otherwise
+	 */
+	private static boolean equals(String morph, char[] surface, int begin, int end) {
+		if (morph == null || begin < 0) {
+			return morph == null && begin < 0;
+		}
+		if (morph.length() != end - begin) {
+			return false;
+		}
+		for (int i = 0; i < morph.length(); i++) {
+			if (morph.charAt(i) != surface[begin + i]) {
+				return false;
+			}
+		}
 		return true;
 	}
 	
@@ -103,6 +240,9 @@ public class ConnectionNot {
 		ruleCount = 0;
 		notTagTable = null;
 		notMorphTable = null;
+		tagCount = 0;
+		pairRules = null;
+		ruleHash = null;
 	}
 	
 	/**
@@ -187,13 +327,69 @@ public class ConnectionNot {
 		for (int i = 0; iter.hasNext(); i++) {
 			String rule = iter.next();
 			StringTokenizer st = new StringTokenizer(rule, " ");
-			notMorphTable[i][0] = st.nextToken();
+			notMorphTable[i][0] = toRuleMorpheme(st.nextToken());
 			notTagTable[i][0] = tagSet.getTagID(st.nextToken());
-			notMorphTable[i][1] = st.nextToken();
+			notMorphTable[i][1] = toRuleMorpheme(st.nextToken());
 			notTagTable[i][1] = tagSet.getTagID(st.nextToken());
 		}
 		
 		ruleList.clear();
 		br.close();
+		
+		buildRuleHash(tagSet.getTagCount());
+	}
+	
+	/**
+	 * Converts the morpheme of a rule to the triple encoding which the morpheme chart uses.
+	 * @param morph - the morpheme in the rule file
+	 * @return the morpheme in the triple encoding, null for any morpheme
+	 */
+	private static String toRuleMorpheme(String morph) {
+		if (ANY_MORPHEME.equals(morph)) {
+			return null;
+		}
+		return Code.toTripleString(morph);
+	}
+	
+	/**
+	 * Builds the hash table of the rules and the kinds of the rules for each pair of tags.
+	 * The rules with the tags not in the tag set are ignored.
+	 * @param tagCount - the number of the tags in the tag set
+	 */
+	private void buildRuleHash(int tagCount) {
+		int capacity = 2;
+		while (capacity < ruleCount * 2) {
+			capacity <<= 1;
+		}
+		
+		this.tagCount = tagCount;
+		pairRules = new byte[tagCount * tagCount];
+		ruleHash = new int[capacity];
+		
+		for (int i = 0; i < ruleCount; i++) {
+			int tag1 = notTagTable[i][0];
+			int tag2 = notTagTable[i][1];
+			if (tag1 < 0 || tag2 < 0) {
+				continue;
+			}
+			
+			String morph1 = notMorphTable[i][0];
+			String morph2 = notMorphTable[i][1];
+			byte kind;
+			if (morph1 == null) {
+				kind = (morph2 == null) ? RULE_ANY_BOTH : RULE_ANY_FIRST;
+			} else {
+				kind = (morph2 == null) ? RULE_ANY_SECOND : RULE_EXACT;
+			}
+			pairRules[tag1 * tagCount + tag2] |= kind;
+			
+			int h1 = (morph1 == null) ? -1 : hash(morph1.toCharArray(), 0, morph1.length());
+			int h2 = (morph2 == null) ? -1 : hash(morph2.toCharArray(), 0, morph2.length());
+			int idx = hash(tag1, tag2, h1, h2) & (capacity - 1);
+			while (ruleHash[idx] != 0) {
+				idx = (idx + 1) & (capacity - 1);
+			}
+			ruleHash[idx] = i + 1;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,440 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import kr.ac.kaist.swrc.jhannanum.share.TagSet;
+
+/**
+ * Directed acyclic word graph (minimal acyclic automaton) for the read-only morpheme dictionaries.
+ *
+ * The trie shares the common prefixes of the words, and the automaton also shares their common
+ * suffixes, e.g. the endings of the inflected and derived forms. The morpheme information is kept
+ * on the states, so two states are merged only if they have the same information and the same
+ * transitions. It makes the dictionary smaller than the trie for the memory-constrained
+ * deployments, with the look-ups a bit slower than the double-array.
+ *
+ * The automaton is built at once from the sorted words by the incremental algorithm of
+ * Daciuk et al. (2000), and it cannot be modified after that.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class Dawg implements MorphemeDic {
+	/**
+	 * The state of the automaton while building, which is not registered yet.
+	 */
+	private static class BuildState {
+		/** the keys of the transitions in ascending order */
+		public char[] keys = new char[4];
+
+		/** the target states of the transitions, -1 for the last one which is not registered yet */
+		public int[] next = new int[4];
+
+		/** the number of transitions */
+		public int size = 0;
+
+		/** the position of the morpheme information in info_data, 0: no information */
+		public int info = 0;
+
+		/**
+		 * Adds the transition with the specified key, whose target is not registered yet.
+		 * @param key - the key of the transition
+		 */
+		public void add(char key) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				next = Arrays.copyOf(next, size * 2);
+			}
+			keys[size] = key;
+			next[size] = -1;
+			size++;
+		}
+
+		/**
+		 * Makes the state empty to reuse it.
+		 */
+		public void reset() {
+			size = 0;
+			info = 0;
+		}
+	}
+
+	/**
+	 * The key of the hash map for the states and the morpheme information registered.
+	 */
+	private static class IntArrayKey {
+		/** the data compared */
+		private int[] data;
+
+		/** the hash code of the data */
+		private int hash;
+
+		/**
+		 * Constructor.
+		 * @param data - the data compared
+		 */
+		public IntArrayKey(int[] data) {
+			this.data = data;
+			this.hash = Arrays.hashCode(data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IntArrayKey && Arrays.equals(data, ((IntArrayKey)obj).data);
+		}
+	}
+
+	/** the initial size of the arrays while building */
+	final private static int INITIAL_BUF_SIZE = 65536;
+
+	/** the first transition of each state, the transitions of the state s are [edge_begin[s], edge_begin[s + 1]) */
+	private int[] edge_begin = null;
+
+	/** the key of each transition, which is in ascending order for each state */
+	private char[] edge_key = null;
+
+	/** the target state of each transition */
+	private int[] edge_next = null;
+
+	/** the position of the morpheme information in info_data for each state, 0: no information */
+	private int[] info = null;
+
+	/** the morpheme information - the number of information followed by the information packed by Trie.pack_info(),
+	 * which is shared by the states with the same information */
+	private int[] info_data = null;
+
+	/** the root state, which node_look() takes for Trie.START_NODE */
+	private int root = 0;
+
+	/** the number of states, including the state 0 and 1 which are not used */
+	private int state_count = 0;
+
+	/** the number of transitions */
+	private int edge_count = 0;
+
+	/** the last position used in info_data */
+	private int info_end = 0;
+
+	/** the states registered while building */
+	private HashMap<IntArrayKey, Integer> state_register = null;
+
+	/** the morpheme information registered while building */
+	private HashMap<IntArrayKey, Integer> info_register = null;
+
+	/**
+	 * Constructor.
+	 */
+	public Dawg() {
+		edge_begin = new int[Trie.START_NODE + 3];
+		edge_key = new char[0];
+		edge_next = new int[0];
+		info = new int[Trie.START_NODE + 2];
+		info_data = new int[1];
+		root = Trie.START_NODE + 1;
+	}
+
+	@Override
+	public int node_look(char key, int idx) {
+		if (idx == Trie.START_NODE) {
+			idx = root;
+		}
+
+		// binary search for the transitions of the state
+		int left = edge_begin[idx];
+		int right = edge_begin[idx + 1] - 1;
+		while (left <= right) {
+			int mid = (left + right) >>> 1;
+			char k = edge_key[mid];
+			if (k < key) {
+				left = mid + 1;
+			} else if (k > key) {
+				right = mid - 1;
+			} else {
+				return edge_next[mid];
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int node_fetch(char[] word) {
+		int idx = Trie.START_NODE;
+
+		if (word.length == 0) {
+			return 0;
+		}
+
+		for (int i = 0; i < word.length && idx != 0; i++) {
+			idx = node_look(word[i], idx);
+		}
+		if (idx == 0 || info[idx] == 0) {
+			return 0;
+		}
+		return idx;
+	}
+
+	@Override
+	public int info_begin(int idx) {
+		int pos = info[idx];
+		if (pos == 0) {
+			return 0;
+		}
+		return pos + 1;
+	}
+
+	@Override
+	public int info_end(int idx) {
+		int pos = info[idx];
+		if (pos == 0) {
+			return 0;
+		}
+		return pos + 1 + info_data[pos];
+	}
+
+	@Override
+	public int info_get(int pos) {
+		return info_data[pos];
+	}
+
+	/**
+	 * Returns the number of states in the automaton.
+	 * @return the number of states
+	 */
+	public int getStateCount() {
+		return state_count - Trie.START_NODE - 1;
+	}
+
+	/**
+	 * Returns the number of transitions in the automaton.
+	 * @return the number of transitions
+	 */
+	public int getEdgeCount() {
+		return edge_count;
+	}
+
+	/**
+	 * It reads the morpheme dictionary file, and builds the automaton.
+	 * @param dictionaryFileName - the file path of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	public void read_dic(String dictionaryFileName, TagSet tagSet) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(dictionaryFileName)));
+		read_buf(in, tagSet);
+	}
+
+	/**
+	 * It reads the morpheme dictionary file, and builds the automaton.
+	 * @param zipFilePath - the zip file path of the morpheme dictionary
+	 * @param filePathinZip - the file path of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	public void read_dic(String zipFilePath, String filePathinZip, TagSet tagSet) throws IOException {
+		ZipFile zip = new ZipFile(zipFilePath);
+		ZipEntry entry = zip.getEntry(filePathinZip);
+		InputStream in = zip.getInputStream(entry);
+		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+		read_buf(br, tagSet);
+		zip.close();
+	}
+
+	/**
+	 * It reads the lines of the morpheme dictionary, and builds the automaton with them.
+	 * @param buf - the reader of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	private void read_buf(BufferedReader buf, TagSet tagSet) throws IOException {
+		ArrayList<String> wordList = new ArrayList<String>();
+		ArrayList<int[]> infoList = new ArrayList<int[]>();
+		ArrayList<String> sortedWords = new ArrayList<String>();
+		ArrayList<int[]> sortedInfos = new ArrayList<int[]>();
+
+		DoubleArrayTrie.read_entries(buf, tagSet, wordList, infoList);
+		DoubleArrayTrie.sort_entries(wordList, infoList, sortedWords, sortedInfos);
+		wordList = null;
+		infoList = null;
+
+		build(sortedWords, sortedInfos);
+	}
+
+	/**
+	 * Builds the automaton with the specified words. The states of the previous word which are not
+	 * on the path of the next word are complete, so they are replaced with the equivalent states
+	 * registered already, or registered as new states.
+	 * @param words - the words in the triple encoding, sorted without duplication
+	 * @param infos - the morpheme information of the words
+	 */
+	private void build(ArrayList<String> words, ArrayList<int[]> infos) {
+		edge_begin = new int[INITIAL_BUF_SIZE];
+		edge_key = new char[INITIAL_BUF_SIZE];
+		edge_next = new int[INITIAL_BUF_SIZE];
+		info = new int[INITIAL_BUF_SIZE];
+		info_data = new int[INITIAL_BUF_SIZE];
+		state_register = new HashMap<IntArrayKey, Integer>();
+		info_register = new HashMap<IntArrayKey, Integer>();
+
+		// the state 0 is for 'not found', and the state 1 is Trie.START_NODE which stands for the root
+		state_count = Trie.START_NODE + 1;
+		edge_count = 0;
+		info_end = 1;
+
+		BuildState[] path = new BuildState[256];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = new BuildState();
+		}
+
+		String prev = "";
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+
+			if (word.length() >= path.length) {
+				int oldLength = path.length;
+				path = Arrays.copyOf(path, word.length() * 2);
+				for (int j = oldLength; j < path.length; j++) {
+					path[j] = new BuildState();
+				}
+			}
+
+			int prefix = 0;
+			while (prefix < prev.length() && prefix < word.length() && prev.charAt(prefix) == word.charAt(prefix)) {
+				prefix++;
+			}
+
+			// the states of the previous word after the common prefix are complete
+			replace_or_register(path, prefix, prev.length());
+
+			for (int d = prefix; d < word.length(); d++) {
+				path[d].add(word.charAt(d));
+				path[d + 1].reset();
+			}
+			path[word.length()].info = store_info(infos.get(i));
+
+			prev = word;
+		}
+		replace_or_register(path, 0, prev.length());
+		root = register(path[0]);
+
+		edge_begin = Arrays.copyOf(edge_begin, state_count + 1);
+		edge_key = Arrays.copyOf(edge_key, edge_count);
+		edge_next = Arrays.copyOf(edge_next, edge_count);
+		info = Arrays.copyOf(info, state_count);
+		info_data = Arrays.copyOf(info_data, info_end);
+		state_register = null;
+		info_register = null;
+	}
+
+	/**
+	 * Registers the states on the path from the deepest one to the one after the specified depth,
+	 * and links each of them to its parent.
+	 * @param path - the states on the path of the previous word
+	 * @param depth - the depth of the last state kept on the path
+	 * @param length - the depth of the deepest state
+	 */
+	private void replace_or_register(BuildState[] path, int depth, int length) {
+		for (int d = length; d > depth; d--) {
+			BuildState parent = path[d - 1];
+			parent.next[parent.size - 1] = register(path[d]);
+		}
+	}
+
+	/**
+	 * Returns the state registered which is equivalent to the specified state, or registers it.
+	 * @param state - the state whose transitions are all registered
+	 * @return the index of the state registered
+	 */
+	private int register(BuildState state) {
+		int[] data = new int[state.size * 2 + 1];
+		data[0] = state.info;
+		for (int i = 0; i < state.size; i++) {
+			data[i * 2 + 1] = state.keys[i];
+			data[i * 2 + 2] = state.next[i];
+		}
+
+		IntArrayKey key = new IntArrayKey(data);
+		Integer registered = state_register.get(key);
+		if (registered != null) {
+			return registered;
+		}
+
+		int idx = state_count++;
+		if (state_count + 1 > edge_begin.length) {
+			edge_begin = Arrays.copyOf(edge_begin, edge_begin.length * 2);
+			info = Arrays.copyOf(info, edge_begin.length);
+		}
+		if (edge_count + state.size > edge_key.length) {
+			int newSize = Math.max(edge_key.length * 2, edge_count + state.size);
+			edge_key = Arrays.copyOf(edge_key, newSize);
+			edge_next = Arrays.copyOf(edge_next, newSize);
+		}
+
+		edge_begin[idx] = edge_count;
+		for (int i = 0; i < state.size; i++) {
+			edge_key[edge_count] = state.keys[i];
+			edge_next[edge_count] = state.next[i];
+			edge_count++;
+		}
+		edge_begin[idx + 1] = edge_count;
+		info[idx] = state.info;
+
+		state_register.put(key, idx);
+		return idx;
+	}
+
+	/**
+	 * Stores the morpheme information of a word to info_data, which is shared with the other words
+	 * if they have the same information.
+	 * @param wordInfo - the morpheme information packed
+	 * @return the position of the information in info_data
+	 */
+	private int store_info(int[] wordInfo) {
+		IntArrayKey key = new IntArrayKey(wordInfo);
+		Integer registered = info_register.get(key);
+		if (registered != null) {
+			return registered;
+		}
+
+		if (info_end + wordInfo.length + 1 > info_data.length) {
+			info_data = Arrays.copyOf(info_data, Math.max(info_data.length * 2, info_end + wordInfo.length + 1));
+		}
+		int pos = info_end;
+		info_data[info_end++] = wordInfo.length;
+		System.arraycopy(wordInfo, 0, info_data, info_end, wordInfo.length);
+		info_end += wordInfo.length;
+
+		info_register.put(key, pos);
+		return pos;
+	}
+}
\ No newline at end of file
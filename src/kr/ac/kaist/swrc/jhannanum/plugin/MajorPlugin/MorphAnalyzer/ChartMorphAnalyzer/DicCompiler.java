@@ -0,0 +1,67 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.io.File;
+
+import kr.ac.kaist.swrc.jhannanum.share.TagSet;
+
+/**
+ * Dictionary compiler which builds the double-array trie from the morpheme dictionary file,
+ * and writes it to the binary image that the morphological analyzer maps on start up.
+ *
+ * The dictionary file is read in UTF-8 unless the charset is given, so the image doesn't depend
+ * on the locale of the host where it is compiled.
+ *
+ * Usage: DicCompiler tagSetFile dictionaryFile imageFile [charset]
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class DicCompiler {
+	/** the charset of the dictionary file if it is not given */
+	final private static String DEFAULT_CHARSET = "UTF-8";
+
+	/**
+	 * Compiles the morpheme dictionary to the dictionary image.
+	 * @param args - the tag set file, the morpheme dictionary file, the image file to write, and optionally
+	 * 		the charset of the dictionary file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 3 && args.length != 4) {
+			System.err.println("Usage: DicCompiler tagSetFile dictionaryFile imageFile [charset]");
+			System.exit(1);
+		}
+
+		try {
+			long start = System.currentTimeMillis();
+
+			TagSet tagSet = new TagSet();
+			tagSet.init(args[0], TagSet.TAG_SET_KAIST);
+
+			DoubleArrayTrie dic = new DoubleArrayTrie();
+			dic.read_dic(args[1], tagSet, (args.length == 4) ? args[3] : DEFAULT_CHARSET);
+			dic.write_image(args[2], tagSet);
+
+			System.out.println(args[2] + ": " + dic.getNodeCount() + " nodes, " + dic.getArraySize() + " slots, "
+					+ new File(args[2]).length() + " bytes, " + (System.currentTimeMillis() - start) + " ms");
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
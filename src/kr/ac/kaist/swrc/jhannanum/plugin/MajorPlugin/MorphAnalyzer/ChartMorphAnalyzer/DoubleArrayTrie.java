@@ -0,0 +1,778 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.StringTokenizer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import kr.ac.kaist.swrc.jhannanum.share.Code;
+import kr.ac.kaist.swrc.jhannanum.share.TagSet;
+
+/**
+ * Double-array TRIE for the read-only morpheme dictionaries.
+ *
+ * The child of the node s with the key c is the node t = base[s] + code(c) where check[t] == s.
+ * The nodes and the morpheme information are kept in primitive arrays, so the dictionary
+ * uses a few arrays instead of a object per node. The trie is built at once from the
+ * dictionary file, and it cannot be modified after that.
+ * 
+ * The built trie can be written to a binary image with write_image(), and read_image() maps
+ * the image read-only, so the dictionary is available without parsing the dictionary file
+ * and the pages of the image are shared by the processes on the same host. The image keeps the
+ * length and the CRC-32 of the dictionary file it was built from, so a stale image is detected
+ * even if the dictionary file has an older modification time.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class DoubleArrayTrie implements MorphemeDic {
+	/** the magic number of the dictionary image - 'HNDA' */
+	final public static int IMAGE_MAGIC = 0x484E4441;
+
+	/** the version of the dictionary image format */
+	final public static int IMAGE_VERSION = 3;
+
+	/** the size of the header of the dictionary image in bytes */
+	final private static int IMAGE_HEADER_SIZE = 32;
+
+	/** the initial size of the arrays while building */
+	final private static int INITIAL_BUF_SIZE = 65536;
+
+	/** the maximum number of morpheme information for a line of the dictionary */
+	final private static int MAX_INFO_PER_LINE = 255;
+
+	/** the base of the children for each node */
+	private IntBuffer base = null;
+
+	/** the parent of each node, 0: free */
+	private IntBuffer check = null;
+
+	/** the position of the morpheme information in info_data for each node, 0: no information */
+	private IntBuffer info = null;
+
+	/** the morpheme information - the number of information followed by the information packed by Trie.pack_info() */
+	private IntBuffer info_data = null;
+
+	/** the code of each character, 0: the character is not used in the dictionary */
+	private CharBuffer code_map = null;
+
+	/** the base array while building */
+	private int[] base_buf = null;
+
+	/** the check array while building */
+	private int[] check_buf = null;
+
+	/** the info array while building */
+	private int[] info_buf = null;
+
+	/** the info_data array while building */
+	private int[] info_data_buf = null;
+
+	/** the code of each character while building */
+	private char[] code_map_buf = null;
+
+	/** the number of nodes used */
+	private int node_count = 0;
+
+	/** the next position to look for free nodes while building */
+	private int next_check_pos = 0;
+
+	/** the last position used while building */
+	private int max_pos = 0;
+
+	/** the last position used in info_data while building */
+	private int info_end = 0;
+
+	/** the length of the dictionary file which the trie was built from */
+	private int source_length = 0;
+
+	/** the CRC-32 of the dictionary file which the trie was built from */
+	private int source_crc = 0;
+
+	/** the words sorted, which are only available while building */
+	private String[] words = null;
+
+	/** the morpheme information of the words sorted, which are only available while building */
+	private int[][] word_infos = null;
+
+	/**
+	 * Constructor.
+	 */
+	public DoubleArrayTrie() {
+		code_map = CharBuffer.wrap(new char[Character.MAX_VALUE + 1]);
+		base = IntBuffer.wrap(new int[2]);
+		check = IntBuffer.wrap(new int[2]);
+		info = IntBuffer.wrap(new int[2]);
+		info_data = IntBuffer.wrap(new int[1]);
+	}
+
+	@Override
+	public int node_look(char key, int idx) {
+		int code = code_map.get(key);
+		if (code == 0) {
+			return 0;
+		}
+
+		int t = base.get(idx) + code;
+		if (t < check.limit() && check.get(t) == idx) {
+			return t;
+		}
+		return 0;
+	}
+
+	@Override
+	public int node_fetch(char[] word) {
+		int idx = Trie.START_NODE;
+
+		if (word.length == 0) {
+			return 0;
+		}
+
+		for (int i = 0; i < word.length && idx != 0; i++) {
+			idx = node_look(word[i], idx);
+		}
+		if (idx == 0 || info.get(idx) == 0) {
+			return 0;
+		}
+		return idx;
+	}
+
+	@Override
+	public int info_begin(int idx) {
+		int pos = info.get(idx);
+		if (pos == 0) {
+			return 0;
+		}
+		return pos + 1;
+	}
+
+	@Override
+	public int info_end(int idx) {
+		int pos = info.get(idx);
+		if (pos == 0) {
+			return 0;
+		}
+		return pos + 1 + info_data.get(pos);
+	}
+
+	@Override
+	public int info_get(int pos) {
+		return info_data.get(pos);
+	}
+
+	/**
+	 * Returns the number of nodes in the trie.
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return node_count;
+	}
+
+	/**
+	 * Returns the size of the arrays for the nodes.
+	 * @return the size of the arrays for the nodes
+	 */
+	public int getArraySize() {
+		return base.limit();
+	}
+
+	/**
+	 * Writes the trie to the dictionary image file.
+	 * @param imageFileName - the file path of the image to write
+	 * @param tagSet - the morpheme tag set used in the trie
+	 * @throws IOException
+	 */
+	public void write_image(String imageFileName, TagSet tagSet) throws IOException {
+		int nodeSize = base.limit();
+		int infoSize = info_data.limit();
+		int size = IMAGE_HEADER_SIZE + (Character.MAX_VALUE + 1) * 2 + (nodeSize * 3 + infoSize) * 4;
+
+		ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(IMAGE_MAGIC);
+		buf.putInt(IMAGE_VERSION);
+		buf.putInt(tag_set_hash(tagSet));
+		buf.putInt(nodeSize);
+		buf.putInt(infoSize);
+		buf.putInt(node_count);
+		buf.putInt(source_length);
+		buf.putInt(source_crc);
+
+		for (int i = 0; i <= Character.MAX_VALUE; i++) {
+			buf.putChar(code_map.get(i));
+		}
+		for (int i = 0; i < nodeSize; i++) {
+			buf.putInt(base.get(i));
+		}
+		for (int i = 0; i < nodeSize; i++) {
+			buf.putInt(check.get(i));
+		}
+		for (int i = 0; i < nodeSize; i++) {
+			buf.putInt(info.get(i));
+		}
+		for (int i = 0; i < infoSize; i++) {
+			buf.putInt(info_data.get(i));
+		}
+		buf.flip();
+
+		FileOutputStream out = new FileOutputStream(imageFileName);
+		try {
+			FileChannel channel = out.getChannel();
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Maps the dictionary image file read-only, and uses it as the trie.
+	 * @param imageFileName - the file path of the image written by write_image()
+	 * @param tagSet - the morpheme tag set, which must be the same with the one used for writing the image
+	 * @throws IOException - the image is not available or doesn't match with the tag set
+	 */
+	public void read_image(String imageFileName, TagSet tagSet) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(imageFileName, "r");
+		MappedByteBuffer map = null;
+		try {
+			map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			// the mapping stays valid after the file is closed
+			file.close();
+		}
+		map.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (map.limit() < IMAGE_HEADER_SIZE || map.getInt(0) != IMAGE_MAGIC) {
+			throw new IOException("read_image: not a dictionary image - " + imageFileName);
+		}
+		if (map.getInt(4) != IMAGE_VERSION) {
+			throw new IOException("read_image: unsupported image version " + map.getInt(4) + " - " + imageFileName);
+		}
+		if (map.getInt(8) != tag_set_hash(tagSet)) {
+			throw new IOException("read_image: the image was built with another tag set - " + imageFileName);
+		}
+
+		int nodeSize = map.getInt(12);
+		int infoSize = map.getInt(16);
+		int pos = IMAGE_HEADER_SIZE;
+		if (map.limit() != pos + (Character.MAX_VALUE + 1) * 2 + ((long)nodeSize * 3 + infoSize) * 4) {
+			throw new IOException("read_image: broken image - " + imageFileName);
+		}
+
+		code_map = slice(map, pos, (Character.MAX_VALUE + 1) * 2).asCharBuffer();
+		pos += (Character.MAX_VALUE + 1) * 2;
+		base = slice(map, pos, nodeSize * 4).asIntBuffer();
+		pos += nodeSize * 4;
+		check = slice(map, pos, nodeSize * 4).asIntBuffer();
+		pos += nodeSize * 4;
+		info = slice(map, pos, nodeSize * 4).asIntBuffer();
+		pos += nodeSize * 4;
+		info_data = slice(map, pos, infoSize * 4).asIntBuffer();
+		node_count = map.getInt(20);
+		source_length = map.getInt(24);
+		source_crc = map.getInt(28);
+	}
+
+	/**
+	 * Checks whether the dictionary image is available and was built from the dictionary file as it is now.
+	 * The length and the CRC-32 of the file are compared with the ones kept in the image.
+	 * @param imageFileName - the file path of the dictionary image
+	 * @param dictionaryFileName - the file path of the morpheme dictionary
+	 * @return true: the image can be used instead of the dictionary file, false: the image should be rebuilt
+	 */
+	public static boolean is_image_fresh(String imageFileName, String dictionaryFileName) {
+		File dic = new File(dictionaryFileName);
+		int[] source = read_image_source(imageFileName);
+		
+		if (source == null) {
+			return false;
+		}
+		if (!dic.exists()) {
+			return true;
+		}
+		if (source[0] != (int)dic.length()) {
+			return false;
+		}
+		
+		try {
+			CheckedInputStream in = new CheckedInputStream(new FileInputStream(dic), new CRC32());
+			try {
+				byte[] buf = new byte[65536];
+				while (in.read(buf) != -1) {
+					;
+				}
+			} finally {
+				in.close();
+			}
+			return source[1] == (int)in.getChecksum().getValue();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks whether the dictionary image is available and was built from the dictionary file in the zip file.
+	 * The length and the CRC-32 of the zip entry are compared with the ones kept in the image.
+	 * @param imageFileName - the file path of the dictionary image
+	 * @param zipFilePath - the zip file path of the morpheme dictionary
+	 * @param filePathinZip - the file path of the morpheme dictionary
+	 * @return true: the image can be used instead of the dictionary file, false: the image should be rebuilt
+	 */
+	public static boolean is_image_fresh(String imageFileName, String zipFilePath, String filePathinZip) {
+		int[] source = read_image_source(imageFileName);
+		
+		if (source == null) {
+			return false;
+		}
+		try {
+			ZipFile zip = new ZipFile(zipFilePath);
+			try {
+				ZipEntry entry = zip.getEntry(filePathinZip);
+				return entry != null && source[0] == (int)entry.getSize() && source[1] == (int)entry.getCrc();
+			} finally {
+				zip.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the length and the CRC-32 of the dictionary file from the header of the image.
+	 * @param imageFileName - the file path of the dictionary image
+	 * @return the length and the CRC-32, null if the image is not available or in the other version
+	 */
+	private static int[] read_image_source(String imageFileName) {
+		if (!new File(imageFileName).isFile()) {
+			return null;
+		}
+		
+		try {
+			RandomAccessFile file = new RandomAccessFile(imageFileName, "r");
+			ByteBuffer header = ByteBuffer.allocate(IMAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			try {
+				file.readFully(header.array());
+			} finally {
+				file.close();
+			}
+			if (header.getInt(0) != IMAGE_MAGIC || header.getInt(4) != IMAGE_VERSION) {
+				return null;
+			}
+			return new int[] {header.getInt(24), header.getInt(28)};
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a part of the mapped image as a little-endian buffer.
+	 * @param map - the mapped image
+	 * @param pos - the start position in bytes
+	 * @param len - the length in bytes
+	 * @return the part of the image
+	 */
+	private static ByteBuffer slice(ByteBuffer map, int pos, int len) {
+		ByteBuffer dup = map.duplicate();
+		dup.position(pos);
+		dup.limit(pos + len);
+		return dup.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Computes the hash of the tag set, which checks the tag IDs and phonemes in the image are valid.
+	 * @param tagSet - the morpheme tag set
+	 * @return the hash of the tag names and the irregular rule names
+	 */
+	private static int tag_set_hash(TagSet tagSet) {
+		int hash = 1;
+		for (int i = 0; i < tagSet.getTagCount(); i++) {
+			hash = hash * 31 + tagSet.getTagName(i).hashCode();
+		}
+		for (int i = 0; i < tagSet.getIrregularCount(); i++) {
+			hash = hash * 31 + tagSet.getIrregularName(i).hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * It reads the morpheme dictionary file, and builds the double-array.
+	 * @param dictionaryFileName - the file path of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	public void read_dic(String dictionaryFileName, TagSet tagSet) throws IOException {
+		read_dic(dictionaryFileName, tagSet, null);
+	}
+
+	/**
+	 * It reads the morpheme dictionary file in the specified charset, and builds the double-array.
+	 * The text which is not valid in the charset is an error instead of being replaced.
+	 * @param dictionaryFileName - the file path of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @param charset - the charset of the dictionary file, null for the default charset of the platform
+	 * @throws IOException
+	 */
+	public void read_dic(String dictionaryFileName, TagSet tagSet, String charset) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(new FileInputStream(dictionaryFileName), new CRC32());
+		InputStreamReader reader = (charset == null) ? new InputStreamReader(checked)
+				: new InputStreamReader(checked, Charset.forName(charset).newDecoder());
+		
+		read_buf(new BufferedReader(reader), tagSet);
+		source_length = (int)new File(dictionaryFileName).length();
+		source_crc = (int)checked.getChecksum().getValue();
+	}
+
+	/**
+	 * It reads the morpheme dictionary file, and builds the double-array.
+	 * @param zipFilePath - the zip file path of the morpheme dictionary
+	 * @param filePathinZip - the file path of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	public void read_dic(String zipFilePath, String filePathinZip, TagSet tagSet) throws IOException {
+		ZipFile zip = new ZipFile(zipFilePath);
+		ZipEntry entry = zip.getEntry(filePathinZip);
+		InputStream in = zip.getInputStream(entry);
+		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+		read_buf(br, tagSet);
+		source_length = (int)entry.getSize();
+		source_crc = (int)entry.getCrc();
+		zip.close();
+	}
+
+	/**
+	 * It reads the lines of the morpheme dictionary, and builds the double-array with them.
+	 * @param buf - the reader of the morpheme dictionary
+	 * @param tagSet - the morpheme tag set
+	 * @throws IOException
+	 */
+	private void read_buf(BufferedReader buf, TagSet tagSet) throws IOException {
+		ArrayList<String> wordList = new ArrayList<String>();
+		ArrayList<int[]> infoList = new ArrayList<int[]>();
+
+		read_entries(buf, tagSet, wordList, infoList);
+		build(wordList, infoList);
+	}
+
+	/**
+	 * It reads the lines of the morpheme dictionary in the format of Trie.read_dic().
+	 * The morpheme information of a word is kept in the order of the dictionary file.
+	 * @param buf - the reader of the morpheme dictionary, which is closed at the end
+	 * @param tagSet - the morpheme tag set
+	 * @param wordList - the list to add the words in the triple encoding
+	 * @param infoList - the list to add the morpheme information packed by Trie.pack_info() for each word
+	 * @throws IOException
+	 */
+	static void read_entries(BufferedReader buf, TagSet tagSet, ArrayList<String> wordList, ArrayList<int[]> infoList) throws IOException {
+		int[] lineInfo = new int[MAX_INFO_PER_LINE];
+		String str = null;
+
+		while ((str = buf.readLine()) != null) {
+			if (str.equals("")) {
+				continue;
+			}
+
+			StringTokenizer tok = new StringTokenizer(str, "\t ");
+			String word = tok.nextToken();
+			int isize = 0;
+
+			while (tok.hasMoreTokens()) {
+				String data = tok.nextToken();
+				StringTokenizer tok2 = new StringTokenizer(data, ".");
+				String curt = tok2.nextToken();
+				int x = tagSet.getTagID(curt);
+				if (x == -1) {
+					System.err.println("read_dic:tag error");
+					continue;
+				}
+
+				if (tok2.hasMoreTokens()) {
+					lineInfo[isize] = Trie.pack_info(x, tagSet.getIrregularID(tok2.nextToken()));
+				} else {
+					lineInfo[isize] = Trie.pack_info(x, TagSet.PHONEME_TYPE_ALL);
+				}
+				isize++;
+			}
+
+			if (isize > 0) {
+				wordList.add(new String(Code.toTripleArray(word)));
+				infoList.add(Arrays.copyOf(lineInfo, isize));
+			}
+		}
+		buf.close();
+	}
+
+	/**
+	 * Sorts the words, and merges the morpheme information of the same word.
+	 * The sort is stable, so the information of the same word stays in the order of the file.
+	 * @param wordList - the words in the triple encoding
+	 * @param infoList - the morpheme information packed for each word
+	 * @param sortedWords - the list to add the words sorted without duplication
+	 * @param sortedInfos - the list to add the morpheme information of the sorted words
+	 */
+	static void sort_entries(final ArrayList<String> wordList, ArrayList<int[]> infoList,
+			ArrayList<String> sortedWords, ArrayList<int[]> sortedInfos) {
+		Integer[] order = new Integer[wordList.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return wordList.get(o1).compareTo(wordList.get(o2));
+			}
+		});
+
+		for (int i = 0; i < order.length; i++) {
+			String word = wordList.get(order[i]);
+			int[] wordInfo = infoList.get(order[i]);
+			int last = sortedWords.size() - 1;
+
+			if (last >= 0 && sortedWords.get(last).equals(word)) {
+				int[] prev = sortedInfos.get(last);
+				int[] merged = Arrays.copyOf(prev, prev.length + wordInfo.length);
+				System.arraycopy(wordInfo, 0, merged, prev.length, wordInfo.length);
+				sortedInfos.set(last, merged);
+			} else {
+				sortedWords.add(word);
+				sortedInfos.add(wordInfo);
+			}
+		}
+	}
+
+	/**
+	 * Builds the double-array with the specified words and their morpheme information.
+	 * @param wordList - the words in the triple encoding
+	 * @param infoList - the morpheme information packed for each word
+	 */
+	private void build(ArrayList<String> wordList, ArrayList<int[]> infoList) {
+		// merges the lines of the same word
+		ArrayList<String> sortedWords = new ArrayList<String>();
+		ArrayList<int[]> sortedInfos = new ArrayList<int[]>();
+		sort_entries(wordList, infoList, sortedWords, sortedInfos);
+
+		int infoDataSize = 1;
+		for (int i = 0; i < sortedInfos.size(); i++) {
+			infoDataSize += sortedInfos.get(i).length + 1;
+		}
+
+		words = sortedWords.toArray(new String[0]);
+		word_infos = sortedInfos.toArray(new int[0][]);
+
+		// the codes of characters are given in the order of their values
+		boolean[] used = new boolean[Character.MAX_VALUE + 1];
+		for (int i = 0; i < words.length; i++) {
+			for (int j = 0; j < words[i].length(); j++) {
+				used[words[i].charAt(j)] = true;
+			}
+		}
+		code_map_buf = new char[Character.MAX_VALUE + 1];
+		char code = 0;
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			if (used[c]) {
+				code_map_buf[c] = ++code;
+			}
+		}
+
+		base_buf = new int[INITIAL_BUF_SIZE];
+		check_buf = new int[INITIAL_BUF_SIZE];
+		info_buf = new int[INITIAL_BUF_SIZE];
+		info_data_buf = new int[infoDataSize];
+		info_end = 1;
+		next_check_pos = 0;
+
+		// the node 0 is not used, and the node 1 is the root
+		check_buf[Trie.START_NODE] = -1;
+		max_pos = Trie.START_NODE;
+		node_count = 1;
+
+		// an empty dictionary has only the root
+		if (words.length > 0) {
+			build_node(Trie.START_NODE, 0, 0, words.length);
+		}
+
+		words = null;
+		word_infos = null;
+
+		int size = max_pos + 1;
+		base = IntBuffer.wrap(Arrays.copyOf(base_buf, size));
+		check = IntBuffer.wrap(Arrays.copyOf(check_buf, size));
+		info = IntBuffer.wrap(Arrays.copyOf(info_buf, size));
+		info_data = IntBuffer.wrap(info_data_buf);
+		code_map = CharBuffer.wrap(code_map_buf);
+		base_buf = null;
+		check_buf = null;
+		info_buf = null;
+		info_data_buf = null;
+		code_map_buf = null;
+	}
+
+	/**
+	 * Places the children of the specified node, and builds their sub-trees recursively.
+	 * @param idx - the index of the node
+	 * @param depth - the depth of the node, which is the length of the prefix shared by the words
+	 * @param left - the first word under the node
+	 * @param right - the end of the words under the node (exclusive)
+	 */
+	private void build_node(int idx, int depth, int left, int right) {
+		// the word which ends on the node comes first in the sorted order
+		if (words[left].length() == depth) {
+			info_buf[idx] = store_info(word_infos[left]);
+			left++;
+		}
+		if (left >= right) {
+			return;
+		}
+
+		// the children - their codes and the ranges of words under them
+		int count = 0;
+		char prev = 0;
+		for (int i = left; i < right; i++) {
+			char c = words[i].charAt(depth);
+			if (count == 0 || c != prev) {
+				count++;
+				prev = c;
+			}
+		}
+		int[] codes = new int[count];
+		int[] bounds = new int[count + 1];
+		count = 0;
+		for (int i = left; i < right; i++) {
+			char c = words[i].charAt(depth);
+			if (count == 0 || code_map_buf[c] != codes[count - 1]) {
+				codes[count] = code_map_buf[c];
+				bounds[count] = i;
+				count++;
+			}
+		}
+		bounds[count] = right;
+
+		int begin = find_base(codes);
+		base_buf[idx] = begin;
+		for (int i = 0; i < count; i++) {
+			check_buf[begin + codes[i]] = idx;
+		}
+		node_count += count;
+
+		for (int i = 0; i < count; i++) {
+			build_node(begin + codes[i], depth + 1, bounds[i], bounds[i + 1]);
+		}
+	}
+
+	/**
+	 * Finds the base where all the children with the specified codes can be placed on free nodes.
+	 * @param codes - the codes of the children in ascending order
+	 * @return the base for the children
+	 */
+	private int find_base(int[] codes) {
+		int first = codes[0];
+		int last = codes[codes.length - 1];
+		int pos = Math.max(first + 1, next_check_pos);
+		int nonZero = 0;
+		boolean firstFree = true;
+		int begin;
+
+		while (true) {
+			ensure_size(pos + 1);
+			if (check_buf[pos] != 0) {
+				nonZero++;
+				pos++;
+				continue;
+			} else if (firstFree) {
+				next_check_pos = pos;
+				firstFree = false;
+			}
+
+			begin = pos - first;
+			ensure_size(begin + last + 1);
+
+			boolean found = true;
+			for (int i = 1; i < codes.length; i++) {
+				if (check_buf[begin + codes[i]] != 0) {
+					found = false;
+					break;
+				}
+			}
+			if (found) {
+				break;
+			}
+			pos++;
+		}
+
+		// skips the region mostly occupied for the next search
+		if ((double)nonZero / (pos - next_check_pos + 1) >= 0.95) {
+			next_check_pos = pos;
+		}
+		if (begin + last > max_pos) {
+			max_pos = begin + last;
+		}
+		return begin;
+	}
+
+	/**
+	 * Stores the morpheme information of a word to info_data.
+	 * @param wordInfo - the morpheme information packed
+	 * @return the position of the information in info_data
+	 */
+	private int store_info(int[] wordInfo) {
+		int pos = info_end;
+		info_data_buf[info_end++] = wordInfo.length;
+		System.arraycopy(wordInfo, 0, info_data_buf, info_end, wordInfo.length);
+		info_end += wordInfo.length;
+		return pos;
+	}
+
+	/**
+	 * Extends the arrays for the nodes to have the specified size at least.
+	 * @param size - the size required
+	 */
+	private void ensure_size(int size) {
+		if (size <= base_buf.length) {
+			return;
+		}
+		int newSize = base_buf.length;
+		while (newSize < size) {
+			newSize *= 2;
+		}
+		base_buf = Arrays.copyOf(base_buf, newSize);
+		check_buf = Arrays.copyOf(check_buf, newSize);
+		info_buf = Arrays.copyOf(info_buf, newSize);
+	}
+}
@@ -0,0 +1,153 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+
+/**
+ * The cache of the analysis results for the plain eojeols, which keeps the eojeols used recently.
+ * The frequent eojeols such as '있다' and '것이' are analyzed by the chart only once while they
+ * are in the cache.
+ *
+ * The cache keeps its own copy of the results, and returns new eojeols for each hit since the
+ * post-processing modifies the morphemes of them. It is used by one analyzer thread, and the
+ * hit and miss counts can be read on the other threads.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class EojeolCache {
+	/** the default number of eojeols in the cache */
+	final public static int DEFAULT_CACHE_SIZE = 10000;
+
+	/** the analysis results in the order of access */
+	private LinkedHashMap<String, Eojeol[]> cache = null;
+
+	/** the maximum number of eojeols in the cache */
+	private int capacity = 0;
+
+	/** the number of look-ups found in the cache */
+	private volatile long hitCount = 0;
+
+	/** the number of look-ups not found in the cache */
+	private volatile long missCount = 0;
+
+	/**
+	 * Constructor.
+	 * @param capacity - the maximum number of eojeols in the cache, the least recently used one is removed over it
+	 */
+	public EojeolCache(int capacity) {
+		this.capacity = capacity;
+		cache = new LinkedHashMap<String, Eojeol[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Eojeol[]> eldest) {
+				return size() > EojeolCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the analysis result of the plain eojeol.
+	 * @param plainEojeol - the plain eojeol
+	 * @return the copy of the eojeols analyzed, null if it is not in the cache
+	 */
+	public Eojeol[] get(String plainEojeol) {
+		Eojeol[] res = cache.get(plainEojeol);
+		if (res == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return copy(res);
+	}
+
+	/**
+	 * Stores the analysis result of the plain eojeol. The cache keeps the copy of the eojeols.
+	 * @param plainEojeol - the plain eojeol
+	 * @param eojeols - the eojeols analyzed
+	 */
+	public void put(String plainEojeol, Eojeol[] eojeols) {
+		cache.put(plainEojeol, copy(eojeols));
+	}
+
+	/**
+	 * Removes all the analysis results, e.g. when the user dictionary is changed.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the number of eojeols in the cache.
+	 * @return the number of eojeols
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the maximum number of eojeols in the cache.
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of look-ups found in the cache.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of look-ups not found in the cache.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the ratio of the look-ups found in the cache.
+	 * @return the hit ratio, 0 if there was no look-up
+	 */
+	public double getHitRatio() {
+		long hit = hitCount;
+		long total = hit + missCount;
+		return (total == 0) ? 0.0 : (double)hit / total;
+	}
+
+	/**
+	 * Makes the copy of the eojeols with their own arrays of morphemes and tags.
+	 * @param eojeols - the eojeols to copy
+	 * @return the copy of the eojeols
+	 */
+	private static Eojeol[] copy(Eojeol[] eojeols) {
+		Eojeol[] res = new Eojeol[eojeols.length];
+		for (int i = 0; i < eojeols.length; i++) {
+			res[i] = new Eojeol(eojeols[i].getMorphemes().clone(), eojeols[i].getTags().clone());
+		}
+		return res;
+	}
+}
\ No newline at end of file
@@ -17,6 +17,8 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import java.util.Arrays;
+
 import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
@@ -38,11 +40,6 @@ public class Exp {
 	 * 러 Irregular rule : IRR_TYPE_REO
 	 */
 
-	/**
-	 * The last index of pset
-	 */
-	private int pset_end = 0;
-
 	/**
 	 * The lattice style morpheme chart
 	 */
@@ -56,7 +53,7 @@ public class Exp {
 	/**
 	 * The list for expansion rules.
 	 */
-	private String[][] pset = 
+	private static final String[][] pset = 
 	{
 		{"초성","ᄀᄁᄂᄃᄄᄅᄆᄇᄈᄉᄊᄋᄌᄍᄎᄏᄐᄑᄒ"},
 		{"종성","ᆨᆩᆪᆫᆬᆭᆮᆯᆰᆱᆲᆳᆴᆵᆶᆷᆸᆹᆺᆻᆼᆽᆾᆿᇀᇁᇂ"},
@@ -185,6 +182,150 @@ public class Exp {
 		{"r54",""}
 	};
 
+	/** the column of the rule table for the space */
+	private static final int COLUMN_SPACE = 256;
+
+	/** the column of the rule table for the other characters and the end of the string */
+	private static final int COLUMN_OTHER = 257;
+
+	/**
+	 * The rule table compiled from pset, which is indexed by the rule and the column of the character.
+	 * The columns 0 to 255 are for the Hangul jamo from U+1100, and the rules with no character are applied to any character.
+	 */
+	private static final boolean[][] ruleTable = new boolean[pset.length][COLUMN_OTHER + 1];
+
+	/** the rule functions which may be applied at the index with the character of each column */
+	private static final int[] triggers = new int[COLUMN_OTHER + 1];
+
+	/** the trigger for rule_rem() */
+	private static final int TRIGGER_REM = 0x01;
+
+	/** the trigger for rule_irr_word() */
+	private static final int TRIGGER_IRR_WORD = 0x02;
+
+	/** the trigger for rule_irr_word2() */
+	private static final int TRIGGER_IRR_WORD2 = 0x04;
+
+	/** the trigger for rule_shorten() */
+	private static final int TRIGGER_SHORTEN = 0x08;
+
+	/** the trigger for rule_eomi_u() */
+	private static final int TRIGGER_EOMI_U = 0x10;
+
+	/** the trigger for rule_gut() */
+	private static final int TRIGGER_GUT = 0x20;
+
+	static {
+		for (int i = 0; i < pset.length; i++) {
+			String chars = pset[i][1];
+			if (chars.length() == 0) {
+				Arrays.fill(ruleTable[i], true);
+			}
+			for (int j = 0; j < chars.length(); j++) {
+				ruleTable[i][column(chars.charAt(j))] = true;
+			}
+		}
+
+		// the characters at the index which the rules of each function require
+		addTrigger(TRIGGER_REM, "11", "12", "13", "14");
+		triggers[column('ᄋ')] |= TRIGGER_REM;	// '오' of the 'ᆯ' elision
+		addTrigger(TRIGGER_IRR_WORD, "21", "22", "23", "24", "25", "26", "27", "28", "29", "30");
+		addTrigger(TRIGGER_IRR_WORD2, "31", "32", "33");
+		addTrigger(TRIGGER_SHORTEN, "51", "52", "53");
+		addTrigger(TRIGGER_EOMI_U, "54");
+		addTrigger(TRIGGER_GUT, "rule_것");
+	}
+
+	/** the indexes of the rules in pset */
+	private static final int CLASS_JONGSEONG = rule("종성");
+	private static final int CLASS_JUNGSEONG = rule("중성");
+	private static final int CLASS_YANGSEONG = rule("양성모음");
+	private static final int RULE_GUT = rule("rule_것");
+	private static final int RULE_L11 = rule("l11");
+	private static final int RULE_11 = rule("11");
+	private static final int RULE_R11 = rule("r11");
+	private static final int RULE_L12 = rule("l12");
+	private static final int RULE_12 = rule("12");
+	private static final int RULE_R12 = rule("r12");
+	private static final int RULE_L13 = rule("l13");
+	private static final int RULE_13 = rule("13");
+	private static final int RULE_R13 = rule("r13");
+	private static final int RULE_L14 = rule("l14");
+	private static final int RULE_14 = rule("14");
+	private static final int RULE_R14 = rule("r14");
+	private static final int RULE_L21 = rule("l21");
+	private static final int RULE_21 = rule("21");
+	private static final int RULE_R21 = rule("r21");
+	private static final int RULE_L22 = rule("l22");
+	private static final int RULE_22 = rule("22");
+	private static final int RULE_R22 = rule("r22");
+	private static final int RULE_L23 = rule("l23");
+	private static final int RULE_23 = rule("23");
+	private static final int RULE_R23 = rule("r23");
+	private static final int RULE_L24 = rule("l24");
+	private static final int RULE_24 = rule("24");
+	private static final int RULE_R24 = rule("r24");
+	private static final int RULE_L25 = rule("l25");
+	private static final int RULE_25 = rule("25");
+	private static final int RULE_R25 = rule("r25");
+	private static final int RULE_L26 = rule("l26");
+	private static final int RULE_26 = rule("26");
+	private static final int RULE_R26 = rule("r26");
+	private static final int RULE_L27 = rule("l27");
+	private static final int RULE_27 = rule("27");
+	private static final int RULE_R27 = rule("r27");
+	private static final int RULE_L28 = rule("l28");
+	private static final int RULE_28 = rule("28");
+	private static final int RULE_R28 = rule("r28");
+	private static final int RULE_L29 = rule("l29");
+	private static final int RULE_29 = rule("29");
+	private static final int RULE_R29 = rule("r29");
+	private static final int RULE_L30 = rule("l30");
+	private static final int RULE_30 = rule("30");
+	private static final int RULE_R30 = rule("r30");
+	private static final int RULE_L31 = rule("l31");
+	private static final int RULE_31 = rule("31");
+	private static final int RULE_R31 = rule("r31");
+	private static final int RULE_L32 = rule("l32");
+	private static final int RULE_32 = rule("32");
+	private static final int RULE_R32 = rule("r32");
+	private static final int RULE_L33 = rule("l33");
+	private static final int RULE_33 = rule("33");
+	private static final int RULE_R33 = rule("r33");
+	private static final int RULE_L51 = rule("l51");
+	private static final int RULE_51 = rule("51");
+	private static final int RULE_R51 = rule("r51");
+	private static final int RULE_L52 = rule("l52");
+	private static final int RULE_52 = rule("52");
+	private static final int RULE_R52 = rule("r52");
+	private static final int RULE_L53 = rule("l53");
+	private static final int RULE_53 = rule("53");
+	private static final int RULE_R53 = rule("r53");
+	private static final int RULE_L54 = rule("l54");
+	private static final int RULE_54 = rule("54");
+	private static final int RULE_R54 = rule("r54");
+
+	/** the buffer where the rules make the changed string for the chart */
+	private char[] work = new char[64];
+
+	/** the length of the string in the work buffer */
+	private int workLen = 0;
+
+	/** the buffer for the changed string which is checked again by the other rule */
+	private char[] alt = new char[64];
+
+	/** the length of the string in the alt buffer */
+	private int altLen = 0;
+
+	/** the buffer which has the front part of the string passed to prule() */
+	private char[] prev = null;
+
+	/** the start index of the front part */
+	private int prevBegin = 0;
+
+	/** the end index of the front part (exclusive) */
+	private int prevEnd = 0;
+
 	/**
 	 * Constructor.
 	 * @param mc - the lattice style morpheme chart
@@ -193,204 +334,280 @@ public class Exp {
 	public Exp(MorphemeChart mc, TagSet tagSet) {
 		this.mc = mc;
 		this.tagSet = tagSet;
-		pset_end = pset.length;
 	}
 
 	/**
-	 * Inserts the string str2 to the specified position of the string str1.
-	 * @param str1 - the string where the other string is going to be inserted
-	 * @param cur - the index of the str1 for insertion
-	 * @param str2 - the string to insert
-	 * @return the new string that str2 is inserted to str1 at the specified position
+	 * Returns the index of the rule in pset.
+	 * @param rule - the name of the rule
+	 * @return the index of the rule
 	 */
-	private String insert(String str1, int cur, String str2) {
-		return str1.substring(0, cur) + str2 + str1.substring(cur);
+	private static int rule(String rule) {
+		for (int i = 0; i < pset.length; i++) {
+			if (pset[i][0].equals(rule)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("no rule: " + rule);
 	}
 
 	/**
-	 * It checks pset whether the rule is applied to the specified index of given string.
-	 * @param base - the string to check
-	 * @param idx - the index of the string
-	 * @param rule - the name of the rule to check
-	 * @return 0 - the rule is not applied, otherwise applied
+	 * Returns the column of the rule table for the character.
+	 * @param c - the character
+	 * @return the column of the character
 	 */
-	private int	pcheck(String base, int idx, String rule) {
-		char c;
-
-		if (idx < base.length()) {
-			c = base.charAt(idx);
-		} else {
-			c = '\0';
+	private static int column(char c) {
+		if (c >= '\u1100' && c < '\u1200') {
+			return c - '\u1100';
+		} else if (c == ' ') {
+			return COLUMN_SPACE;
 		}
+		return COLUMN_OTHER;
+	}
 
-		for (int i = 0; i < pset_end; i++) {
-			if (pset[i][0].equals(rule)) {
-				if (pset[i][1].length() == 0) {
-					return 1;
-				} else {
-					int index = pset[i][1].indexOf(c);
-					if (index == -1) {
-						return 0;
-					} else {
-						return index + 1;
-					}
+	/**
+	 * Sets the trigger on the characters of the specified rules.
+	 * @param trigger - the trigger of the rule function
+	 * @param rules - the names of the rules which the character at the index should satisfy
+	 */
+	private static void addTrigger(int trigger, String... rules) {
+		for (String name : rules) {
+			boolean[] row = ruleTable[rule(name)];
+			for (int i = 0; i < row.length; i++) {
+				if (row[i]) {
+					triggers[i] |= trigger;
 				}
 			}
 		}
-		return 0;
+	}
+
+	/**
+	 * It checks the rule table whether the rule is applied to the specified index of given string.
+	 * @param base - the string to check
+	 * @param len - the length of the string
+	 * @param idx - the index of the string
+	 * @param rule - the index of the rule to check
+	 * @return true - the rule is applied, false - not applied
+	 */
+	private boolean pcheck(char[] base, int len, int idx, int rule) {
+		return ruleTable[rule][(idx < len) ? column(base[idx]) : COLUMN_OTHER];
 	}
 
 	/**
 	 * Check the rules on the given string, and expand the morpheme chart.
+	 * The strings are not kept after it returns, so the chart can pass its buffers.
 	 * @param from - the index for the start of segment position
-	 * @param str1 - the front part of the string
-	 * @param str2 - the next part of the string
-	 * @param sp - the segment position
+	 * @param prev - the buffer which has the front part of the string
+	 * @param prevBegin - the start index of the front part
+	 * @param prevEnd - the end index of the front part (exclusive)
+	 * @param str - the next part of the string
+	 * @param len - the length of the next part
 	 */
-	public void prule(int from, String str1, String str2, SegmentPosition sp) {
+	public void prule(int from, char[] prev, int prevBegin, int prevEnd, char[] str, int len) {
 		int i;
-		rule_NP(from, str1, str2);
-		// sp.printPosition();
-
-		for(i=0;i<str2.length();i++) {
-			rule_rem(from,str1,str2,i);
-			// sp.printPosition();
-			rule_irr_word(from,str1,str2,i);
-			// sp.printPosition();
-			rule_irr_word2(from,str1,str2,i);
-			// sp.printPosition();
-			rule_shorten(from,str1,str2,i);
-			// sp.printPosition();
-			rule_eomi_u(from,str1,str2,i);
-			// sp.printPosition();
-			rule_johwa(from,str1,str2,i);
-			// sp.printPosition();
-			rule_i(from,str1,str2,i);
-			// sp.printPosition();
-			rule_gut(from,str1,str2,i);
-			// sp.printPosition();
+
+		// the rules insert at most a few characters to the string
+		if (work.length < len + 8) {
+			work = new char[len * 2 + 8];
+			alt = new char[len * 2 + 8];
+		}
+		this.prev = prev;
+		this.prevBegin = prevBegin;
+		this.prevEnd = prevEnd;
+
+		rule_NP(from, str, len);
+
+		for(i=0;i<len;i++) {
+			// only the functions whose rules accept the character at the index are checked
+			int trigger = triggers[column(str[i])];
+			if (i == 1) {
+				// the 'ᅳ' elision is applied to the second character of any kind
+				trigger |= TRIGGER_REM;
+			}
+
+			if ((trigger & TRIGGER_REM) != 0) rule_rem(from,str,len,i);
+			if ((trigger & TRIGGER_IRR_WORD) != 0) rule_irr_word(from,str,len,i);
+			if ((trigger & TRIGGER_IRR_WORD2) != 0) rule_irr_word2(from,str,len,i);
+			if ((trigger & TRIGGER_SHORTEN) != 0) rule_shorten(from,str,len,i);
+			if ((trigger & TRIGGER_EOMI_U) != 0) rule_eomi_u(from,str,len,i);
+			rule_johwa(from,str,len,i);
+			rule_i(from,str,len,i);
+			if ((trigger & TRIGGER_GUT) != 0) rule_gut(from,str,len,i);
 		}
+		this.prev = null;
 	}
 
 	/**
-	 * Replaces the character at the specified position of the string str1
-	 * with the first character of the string str2.
-	 * @param str1 - base string
-	 * @param cur - index of the character to 
-	 * @param str2 - the first character of the string is used to replace
-	 * @return the string with the new character replaced
+	 * Sets the string in the work buffer.
+	 * @param str - the string to copy
+	 * @param len - the length of the string
 	 */
-	private String replace(String str1, int cur, String str2) {
-		char[] array = str1.toCharArray();
-		
-		if (str2.length() == 0) {
-			System.err.println("Exp.java: replace(): s is to short");
-			System.exit(0);
+	private void set(char[] str, int len) {
+		System.arraycopy(str, 0, work, 0, len);
+		workLen = len;
+	}
+
+	/**
+	 * Sets the string in the work buffer.
+	 * @param str - the string to copy
+	 */
+	private void set(String str) {
+		workLen = 0;
+		append(str);
+	}
+
+	/**
+	 * Appends the string to the work buffer.
+	 * @param str - the string to append
+	 */
+	private void append(String str) {
+		str.getChars(0, str.length(), work, workLen);
+		workLen += str.length();
+	}
+
+	/**
+	 * Appends the part of the string to the work buffer.
+	 * @param str - the string to append
+	 * @param begin - the start index of the part
+	 * @param end - the end index of the part (exclusive)
+	 */
+	private void append(char[] str, int begin, int end) {
+		System.arraycopy(str, begin, work, workLen, end - begin);
+		workLen += end - begin;
+	}
+
+	/**
+	 * Inserts the string str to the specified position of the string in the work buffer.
+	 * @param cur - the index of the work buffer for insertion
+	 * @param str - the string to insert
+	 */
+	private void insert(int cur, String str) {
+		int n = str.length();
+		System.arraycopy(work, cur, work, cur + n, workLen - cur);
+		str.getChars(0, n, work, cur);
+		workLen += n;
+	}
+
+	/**
+	 * Replaces the character at the specified position of the string in the work buffer.
+	 * @param cur - index of the character to replace
+	 * @param c - the new character
+	 */
+	private void replace(int cur, char c) {
+		if (cur >= workLen) {
+			throw new StringIndexOutOfBoundsException(cur);
 		}
-		array[cur] = str2.charAt(0);
-		
-		return String.valueOf(array);
+		work[cur] = c;
+	}
+
+	/**
+	 * Keeps the string in the work buffer in the alt buffer, which is checked by the other rule.
+	 */
+	private void keep() {
+		System.arraycopy(work, 0, alt, 0, workLen);
+		altLen = workLen;
+	}
+
+	/**
+	 * Expands the morpheme chart with the string in the work buffer.
+	 * @param from - the start index for the segment position
+	 * @param split - the length of the front part of the string
+	 * @param ftag - the morpheme tag of the front part
+	 * @param btag - the morpheme tag of the next part
+	 * @param phoneme - phoneme
+	 */
+	private void change(int from, int split, int ftag, int btag, int phoneme) {
+		mc.phonemeChange(from, work, split, workLen, ftag, btag, phoneme);
+	}
+
+	/**
+	 * Expands the morpheme chart with the specified front part, and the next part in the work buffer.
+	 * The front part is inserted to the work buffer.
+	 * @param from - the start index for the segment position
+	 * @param front - the front part of the string
+	 * @param ftag - the morpheme tag of the front part
+	 * @param btag - the morpheme tag of the next part
+	 * @param phoneme - phoneme
+	 */
+	private void change(int from, String front, int ftag, int btag, int phoneme) {
+		insert(0, front);
+		change(from, front.length(), ftag, btag, phoneme);
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the elision rule '으', '스', '느'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_eomi_u(int from, String prev, String str, int cur) {
-		String buf;
-		String buf2;
-		String new_str;
-
-		if (cur > str.length()) {
+	private void rule_eomi_u(int from, char[] str, int len, int cur) {
+		if (cur > len) {
 			return;
 		}
 
-		if ((cur>0 && pcheck(str,cur-1,"l54")!=0)
-				&&pcheck(str,cur,"54")!=0
-				&&pcheck(str,cur+1,"r54")!=0) {
-			new_str=insert(str,cur,"으");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
-		}
-		if ((cur>0 && pcheck(str,cur-1,"l54")!=0)
-				&&strncmp(str,cur,"ᆸ니",0,3)==0) {
-			new_str=insert(str,cur,"스");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
-		}
-		if ((cur>0 && pcheck(str,cur-1,"l54")!=0)
-				&&strncmp(str,cur,"ᆫ다",0,3)==0) {
-			new_str=insert(str,cur,"느");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0 && pcheck(str,len,cur-1,RULE_L54))
+				&&pcheck(str,len,cur,RULE_54)
+				&&pcheck(str,len,cur+1,RULE_R54)) {
+			set(str,len);
+			insert(cur,"으");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		}
+		if ((cur>0 && pcheck(str,len,cur-1,RULE_L54))
+				&&startsWith(str,len,cur,"ᆸ니")) {
+			set(str,len);
+			insert(cur,"스");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		}
+		if ((cur>0 && pcheck(str,len,cur-1,RULE_L54))
+				&&startsWith(str,len,cur,"ᆫ다")) {
+			set(str,len);
+			insert(cur,"느");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the rules about '것'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_gut(int from,String prev,String str,int cur) {
-		String buf;
-		String buf2;
-		String new_str;
-
-		if (cur >= str.length()) {
+	private void rule_gut(int from, char[] str, int len, int cur) {
+		if (cur >= len) {
 			return;
 		}
 
-		if (cur>1&& strncmp(str,cur-2,"거",0,2)==0 &&
-				pcheck(str,cur,"rule_것")!=0) {
+		if (cur>1&& startsWith(str,len,cur-2,"거") &&
+				pcheck(str,len,cur,RULE_GUT)) {
 
-			if (str.charAt(cur)=='ᆸ') {
-				if (strncmp(str,cur,"ᆸ니",0,3)==0) {
-					new_str=insert(str,cur,"ᆺ이");
-					buf = new_str.substring(0,cur+1);
-					buf2 = new_str.substring(cur+1);
-					// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-					mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
+			if (str[cur]=='ᆸ') {
+				if (startsWith(str,len,cur,"ᆸ니")) {
+					set(str,len);
+					insert(cur,"ᆺ이");
+					change(from,cur+1,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
 				}
 			} else {
-				if (strncmp(str,cur,"ᆯ로",0,3)==0) {
-					new_str=replace(str,cur,"ᆺ");
-					new_str=insert(new_str,cur+1,"으");
-					buf = new_str.substring(0,cur+1);
-					buf2 = new_str.substring(cur+1);
-					// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-					mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-
-				} else if (str.charAt(cur)=='ᆯ'||str.charAt(cur)=='ᆫ') {
-					if (str.length() != cur + 1) {
-						new_str=insert(str,cur,"ᆺ이");
-						buf = new_str.substring(0,cur+1);
-						buf2 = new_str.substring(cur+1);
-						// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-						mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
+				if (startsWith(str,len,cur,"ᆯ로")) {
+					set(str,len);
+					replace(cur,'ᆺ');
+					insert(cur+1,"으");
+					change(from,cur+1,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+
+				} else if (str[cur]=='ᆯ'||str[cur]=='ᆫ') {
+					if (len != cur + 1) {
+						set(str,len);
+						insert(cur,"ᆺ이");
+						change(from,cur+1,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
 					}
 
-					new_str=insert(str,cur,"ᆺ으");
-					buf = new_str.substring(0,cur+1);
-					buf2 = new_str.substring(cur+1);
-					// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-					mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+					set(str,len);
+					insert(cur,"ᆺ으");
+					change(from,cur+1,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
 				} else {
-					new_str=insert(str,cur,"ᆺ이");
-					buf = new_str.substring(0,cur+1);
-					buf2 = new_str.substring(cur+1);
-					// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-					mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
+					set(str,len);
+					insert(cur,"ᆺ이");
+					change(from,cur+1,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JP,0);
 				}
 			}
 		} 
@@ -399,38 +616,32 @@ public class Exp {
 	/**
 	 * It expands the morpheme chart regarding the rule '이'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_i(int from, String prev, String str,int cur) {
-		String buf;
-		String buf2;
-		String new_str;
-
-		if (cur+2 > str.length()) {
+	private void rule_i(int from, char[] str, int len, int cur) {
+		if (cur+2 > len) {
 			return;
 		}
 
-		if ((prev!=null&&prev.length() != 0&&cur==0)
-				&&pcheck(prev,prev.length()-1,"중성")!=0) {
+		if ((prevEnd > prevBegin&&cur==0)
+				&&pcheck(prev,prevEnd,prevEnd-1,CLASS_JUNGSEONG)) {
 
-			if (strncmp(str,0,"여",0,2)==0) {
-				new_str=replace(str,cur+1,"ᅥ");
-				new_str=insert(new_str,cur+1,"ᅵᄋ");
-				buf = new_str.substring(0,cur+2);
-				buf2 = new_str.substring(cur+2);
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-				mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_JP,TagSet.TAG_TYPE_EOMIES,0);
+			if (startsWith(str,len,0,"여")) {
+				set(str,len);
+				replace(cur+1,'ᅥ');
+				insert(cur+1,"ᅵᄋ");
+				change(from,cur+2,TagSet.TAG_TYPE_JP,TagSet.TAG_TYPE_EOMIES,0);
 			} else {
-				if (pcheck(str,0,"종성")!=0||
-						strncmp(str,0,"는",0,3)==0||strncmp(str,0,"은",0,3)==0||
-						strncmp(str,0,"음",0,3)==0||strncmp(str,2,"는",0,3)==0) 
+				if (pcheck(str,len,0,CLASS_JONGSEONG)||
+						startsWith(str,len,0,"는")||startsWith(str,len,0,"은")||
+						startsWith(str,len,0,"음")||startsWith(str,len,2,"는")) 
 					return;
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-				mc.phonemeChange(from,"이",str,TagSet.TAG_TYPE_JP,TagSet.TAG_TYPE_EOMIES,0);
-				buf = "이" + str;
-				rule_eomi_u(from,prev,buf,cur+2);
+				set(str,len);
+				change(from,"이",TagSet.TAG_TYPE_JP,TagSet.TAG_TYPE_EOMIES,0);
+				keep();
+				rule_eomi_u(from,alt,altLen,cur+2);
 			}
 		}
 	}
@@ -438,231 +649,188 @@ public class Exp {
 	/**
 	 * It expands the morpheme chart regarding the irregular rules about 'ㄷ', 'ㅅ', 'ㅂ', 'ㅎ', '르', '러'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_irr_word(int from,String prev,String str,int cur) {
-		String buf;
-		String buf2;
-		String new_str;
-		int len = str.length();
-
+	private void rule_irr_word(int from, char[] str, int len, int cur) {
 		/* 'ᆮ' irregular rule */
-		if ((cur>0&&cur<=len&&pcheck(str,cur-1,"l21")!=0)
-				&&pcheck(str,cur,"21")!=0
-				&&pcheck(str,cur+1,"r21")!=0) {
-			new_str = replace(str,cur-1,"ᆮ");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_D);
+		if ((cur>0&&cur<=len&&pcheck(str,len,cur-1,RULE_L21))
+				&&pcheck(str,len,cur,RULE_21)
+				&&pcheck(str,len,cur+1,RULE_R21)) {
+			set(str,len);
+			replace(cur-1,'ᆮ');
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_D);
 		}
 
 		/* 'ᆺ' irregular rule */
-		if ((cur>0&&cur<len&&pcheck(str,cur-1,"l22")!=0)
-				&&pcheck(str,cur,"22")!=0
-				&&pcheck(str,cur+1,"r22")!=0) {
-			new_str=insert(str,cur,"ᆺ");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_S);
+		if ((cur>0&&cur<len&&pcheck(str,len,cur-1,RULE_L22))
+				&&pcheck(str,len,cur,RULE_22)
+				&&pcheck(str,len,cur+1,RULE_R22)) {
+			set(str,len);
+			insert(cur,"ᆺ");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_S);
 		}
 
 		/* 'ㅂ' irregular rule */
-		if ((cur>0&&cur<=len&&pcheck(str,cur-1,"l23")!=0)
-				&&pcheck(str,cur,"23")!=0
-				&&pcheck(str,cur+1,"r23")!=0) {
-			new_str=replace(str,cur,"ᅳ");
-			new_str=insert(new_str,cur-1,"ᆸ");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
+		if ((cur>0&&cur<=len&&pcheck(str,len,cur-1,RULE_L23))
+				&&pcheck(str,len,cur,RULE_23)
+				&&pcheck(str,len,cur+1,RULE_R23)) {
+			set(str,len);
+			replace(cur,'ᅳ');
+			insert(cur-1,"ᆸ");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
 		}
 
 		/* 'ᆸ' irregular rule */
-		if ((cur>0&&cur<=len&&pcheck(str,cur-1,"l24")!=0)
-				&&pcheck(str,cur,"24")!=0
-				&&pcheck(str,cur+1,"r24")!=0) {
-			new_str=replace(str,cur,"ᅥ");
-			new_str=insert(new_str,cur-1,"ᆸ");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
+		if ((cur>0&&cur<=len&&pcheck(str,len,cur-1,RULE_L24))
+				&&pcheck(str,len,cur,RULE_24)
+				&&pcheck(str,len,cur+1,RULE_R24)) {
+			set(str,len);
+			replace(cur,'ᅥ');
+			insert(cur-1,"ᆸ");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
 		}
 
 		/* 'ㅂ' irregular rule */
-		if ((cur>0&&cur<=len&&pcheck(str,cur-1,"l25")!=0)
-				&&pcheck(str,cur,"25")!=0
-				&&pcheck(str,cur+1,"r25")!=0) {
-			new_str=replace(str,cur,"ᅥ");
-			new_str=insert(new_str,cur-1,"ᆸ");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
+		if ((cur>0&&cur<=len&&pcheck(str,len,cur-1,RULE_L25))
+				&&pcheck(str,len,cur,RULE_25)
+				&&pcheck(str,len,cur+1,RULE_R25)) {
+			set(str,len);
+			replace(cur,'ᅥ');
+			insert(cur-1,"ᆸ");
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_B);
 		}
 
 		/* 'ᇂ' irregular rule */
-		if ((cur>0&&cur+1<len&&pcheck(str,cur-1,"l26")!=0)
-				&&pcheck(str,cur,"26")!=0
-				&&pcheck(str,cur+1,"r26")!=0) {
-			new_str=insert(str,cur+1,"ᇂ으");
-			buf = new_str.substring(0,cur+2);
-			buf2 = new_str.substring(cur+2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
+		if ((cur>0&&cur+1<len&&pcheck(str,len,cur-1,RULE_L26))
+				&&pcheck(str,len,cur,RULE_26)
+				&&pcheck(str,len,cur+1,RULE_R26)) {
+			set(str,len);
+			insert(cur+1,"ᇂ으");
+			change(from,cur+2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
 		}
 
 		/* 'ㅎ' irregular rule */
-		if ((cur>0&&cur+1<len&&pcheck(str,cur-1,"l27")!=0)
-				&&pcheck(str,cur,"27")!=0
-				&&pcheck(str,cur+1,"r27")!=0) {
-			if (str.charAt(cur)=='ᅢ') {
-				new_str=replace(str,cur,"ᅡ");
+		if ((cur>0&&cur+1<len&&pcheck(str,len,cur-1,RULE_L27))
+				&&pcheck(str,len,cur,RULE_27)
+				&&pcheck(str,len,cur+1,RULE_R27)) {
+			if (str[cur]=='ᅢ') {
+				set(str,len);
+				replace(cur,'ᅡ');
 			} else {
-				new_str=replace(str,cur,"ᅣ");
+				set(str,len);
+				replace(cur,'ᅣ');
 			}
-			new_str=insert(new_str,cur+1,"ᇂ어");
-			buf = new_str.substring(0,cur+2);
-			buf2 = new_str.substring(cur+2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
+			insert(cur+1,"ᇂ어");
+			change(from,cur+2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
 			//			이운재 추가
-			if (str.charAt(cur)=='ᅢ') {
-				new_str = replace(str,cur,"ᅥ");
+			if (str[cur]=='ᅢ') {
+				set(str,len);
+				replace(cur,'ᅥ');
 			} else {
-				new_str = replace(str,cur,"ᅧ");
+				set(str,len);
+				replace(cur,'ᅧ');
 			}
-			new_str=insert(new_str,cur+1,"ᇂ어");
-			buf = new_str.substring(0,cur+2);
-			buf2 = new_str.substring(cur+2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
+			insert(cur+1,"ᇂ어");
+			change(from,cur+2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
 		}
 		
 		/* 'ㅎ' irregular rule */
-		if ((cur>0&&cur+1<len&&pcheck(str,cur-1,"l28")!=0)
-				&&pcheck(str,cur,"28")!=0
-				&&pcheck(str,cur+1,"r28")!=0) {
-			new_str=replace(str,cur,"ᅥ");
-			new_str=insert(new_str,cur+1,"ᇂᄋ");
-			buf = new_str.substring(0,cur+2);
-			buf2 = new_str.substring(cur+2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
+		if ((cur>0&&cur+1<len&&pcheck(str,len,cur-1,RULE_L28))
+				&&pcheck(str,len,cur,RULE_28)
+				&&pcheck(str,len,cur+1,RULE_R28)) {
+			set(str,len);
+			replace(cur,'ᅥ');
+			insert(cur+1,"ᇂᄋ");
+			change(from,cur+2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_H);
 		}
 
 
 		/* '르' irregular rule */
-		if ((cur>0&&cur<len&&pcheck(str,cur-1,"l29")!=0)
-				&&pcheck(str,cur,"29")!=0
-				&&pcheck(str,cur+1,"r29")!=0) {
-			new_str = replace(str,cur,"ᅳ");
-			if (new_str.charAt(cur+1)=='ᅡ') 
-				new_str = new_str.substring(0, cur+1) + 'ᅥ' + new_str.substring(cur+2);
-			new_str = insert(new_str,cur+1,"ᄋ");
-			new_str = new_str.substring(0, cur-1) + Code.toChoseong(new_str.charAt(cur-1)) + new_str.substring(cur);
-
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_REU);
+		if ((cur>0&&cur<len&&pcheck(str,len,cur-1,RULE_L29))
+				&&pcheck(str,len,cur,RULE_29)
+				&&pcheck(str,len,cur+1,RULE_R29)) {
+			set(str,len);
+			replace(cur,'ᅳ');
+			if (work[cur+1]=='ᅡ') 
+				replace(cur+1,'ᅥ');
+			insert(cur+1,"ᄋ");
+			replace(cur-1,Code.toChoseong(work[cur-1]));
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_REU);
 		}
 		
 		/* '러' irregular rule */
-		if ((cur>0&&cur<=len&&pcheck(str,cur-1,"l30")!=0)
-				&&pcheck(str,cur,"30")!=0
-				&&pcheck(str,cur+1,"r30")!=0&&(cur-2>=0&&str.charAt(cur-2)=='ᄅ')) {
-			new_str=replace(str,cur,"ᄋ");
-			buf = new_str.substring(0,cur);
-			buf2 = new_str.substring(cur);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_REO);
+		if ((cur>0&&cur<=len&&pcheck(str,len,cur-1,RULE_L30))
+				&&pcheck(str,len,cur,RULE_30)
+				&&pcheck(str,len,cur+1,RULE_R30)&&(cur-2>=0&&str[cur-2]=='ᄅ')) {
+			set(str,len);
+			replace(cur,'ᄋ');
+			change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,tagSet.IRR_TYPE_REO);
 		}
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the irregular rules about '우', '여'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_irr_word2(int from,String prev,String str,int cur)
+	private void rule_irr_word2(int from, char[] str, int len, int cur)
 	{
-		String buf;
-		String buf2;
-		String new_str;
-
-		if (cur >= str.length()) {
+		if (cur >= len) {
 			return;
 		}
 
 		/* '우' irregular rule */
-		if ((cur>0&&pcheck(str,cur-1,"l31")!=0)
-				&&pcheck(str,cur,"31")!=0
-				&&pcheck(str,cur+1,"r31")!=0) {
-			new_str=replace(str,cur,"ᅮ");
-			new_str=insert(new_str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L31))
+				&&pcheck(str,len,cur,RULE_31)
+				&&pcheck(str,len,cur+1,RULE_R31)) {
+			set(str,len);
+			replace(cur,'ᅮ');
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* '여' irregular rule */
-		if ((cur>0&&pcheck(str,cur-1,"l32")!=0)
-				&&pcheck(str,cur,"32")!=0
-				&&pcheck(str,cur+1,"r32")!=0&&str.charAt(cur+2)=='ᅧ') {
-			new_str=replace(str,cur+2,"ᅥ");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L32))
+				&&pcheck(str,len,cur,RULE_32)
+				&&pcheck(str,len,cur+1,RULE_R32)&&cur+2<len&&str[cur+2]=='ᅧ') {
+			set(str,len);
+			replace(cur+2,'ᅥ');
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* '여' irregular rule */
-		if ((cur>0&&pcheck(str,cur-1,"l33")!=0)
-				&&pcheck(str,cur,"33")!=0
-				&&pcheck(str,cur+1,"r33")!=0) {
-			new_str=replace(str,cur,"ᅡ");
-			new_str=insert(new_str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L33))
+				&&pcheck(str,len,cur,RULE_33)
+				&&pcheck(str,len,cur+1,RULE_R33)) {
+			set(str,len);
+			replace(cur,'ᅡ');
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the vowel harmony rules.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_johwa(int from,String prev,String str,int cur)	{
-		String buf;
-		String buf2;
-		String new_str;
-		if (cur>0&&pcheck(str,cur-1,"양성모음")!=0) {
-			if (cur+2<str.length()&&str.charAt(cur+1)=='ᄋ'&&str.charAt(cur+2)=='ᅡ') {
-				new_str=replace(str,cur+2,"ᅥ");
-				buf = new_str.substring(0,cur+1);
-				buf2 = new_str.substring(cur+1);
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-				mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+	private void rule_johwa(int from, char[] str, int len, int cur)	{
+		if (cur>0&&pcheck(str,len,cur-1,CLASS_YANGSEONG)) {
+			if (cur+2<len&&str[cur+1]=='ᄋ'&&str[cur+2]=='ᅡ') {
+				set(str,len);
+				replace(cur+2,'ᅥ');
+				change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 			}
-			else if (cur+1<str.length()&&str.charAt(cur)=='ᄋ'&&str.charAt(cur+1)=='ᅡ') {
-				new_str=replace(str,cur+1,"ᅥ");
-				buf = new_str.substring(0,cur);
-				buf2 = new_str.substring(cur);
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-				mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+			else if (cur+1<len&&str[cur]=='ᄋ'&&str[cur+1]=='ᅡ') {
+				set(str,len);
+				replace(cur+1,'ᅥ');
+				change(from,cur,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 			}
 		}
 	}
@@ -670,259 +838,212 @@ public class Exp {
 	/**
 	 * It expands the morpheme chart regarding the rules about personal pronoun.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 */
-	private void rule_NP(int from,String prev,String str) {
-		String buf;
-
-		if (strncmp(str,0,"내가",0,4)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"나",str+2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"네가",0,4)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"너",str+2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"제가",0,4)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"저",str+2,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strcmp(str,0,"내",0)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"나","의",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strcmp(str,0,"네",0)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"너","의",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strcmp(str,0,"제",0)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"저","의",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"내게",0,4)==0) {
-			buf = "에" + str.substring(2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"나",buf,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"네게",0,4)==0) {
-			buf = "에" + str.substring(2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"너",buf,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"제게",0,4)==0) {
-			buf = "에" + str.substring(2);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"저",buf,TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-		} else if (strncmp(str,0,"나",0,2)==0) {
-			if (str.length()==3&&str.charAt(2)=='ᆫ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"나","는",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-			} else if (str.length() == 3&&str.charAt(2)=='ᆯ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"나","를",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+	private void rule_NP(int from, char[] str, int len) {
+		if (startsWith(str,len,0,"내가")) {
+			// the next part has been made with str+2, which appends "2" to the string
+			set(str,len);
+			append("2");
+			change(from,"나",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"네가")) {
+			set(str,len);
+			append("2");
+			change(from,"너",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"제가")) {
+			set(str,len);
+			append("2");
+			change(from,"저",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (equals(str,len,"내")) {
+			set("의");
+			change(from,"나",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (equals(str,len,"네")) {
+			set("의");
+			change(from,"너",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (equals(str,len,"제")) {
+			set("의");
+			change(from,"저",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"내게")) {
+			set("에");
+			append(str,2,len);
+			change(from,"나",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"네게")) {
+			set("에");
+			append(str,2,len);
+			change(from,"너",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"제게")) {
+			set("에");
+			append(str,2,len);
+			change(from,"저",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"나")) {
+			if (len==3&&str[2]=='ᆫ') {
+				set("는");
+				change(from,"나",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+			} else if (len == 3&&str[2]=='ᆯ') {
+				set("를");
+				change(from,"나",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
 			}
-		} else if (strncmp(str,0,"너",0,2)==0) {
-			if (str.length() == 3&&str.charAt(2)=='ᆫ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"너","는",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-			} else if (str.length() == 3&&str.charAt(2)=='ᆯ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"너","를",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"너")) {
+			if (len == 3&&str[2]=='ᆫ') {
+				set("는");
+				change(from,"너",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+			} else if (len == 3&&str[2]=='ᆯ') {
+				set("를");
+				change(from,"너",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
 			}
-		} else if (strncmp(str,0,"누구",0,4)==0) {
-			if (str.length() == 5&&str.charAt(4)=='ᆫ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"누구","는",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
-			} else if (str.length() == 5&&str.charAt(4)=='ᆯ') {
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-				mc.phonemeChange(from,"누구","를",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (startsWith(str,len,0,"누구")) {
+			if (len == 5&&str[4]=='ᆫ') {
+				set("는");
+				change(from,"누구",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+			} else if (len == 5&&str[4]=='ᆯ') {
+				set("를");
+				change(from,"누구",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
 			}
-		} else if (strcmp(str,0,"무언가",0)==0) {
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()));
-			mc.phonemeChange(from,"무엇","인가",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
+		} else if (equals(str,len,"무언가")) {
+			set("인가");
+			change(from,"무엇",TagSet.TAG_TYPE_NBNP,TagSet.TAG_TYPE_JOSA,0);
 		}
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the elision rules about 'ㄹ', 'ㅡ', 'ㅏ', 'ㅓ'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_rem(int from,String prev,String str,int cur) {
-		String buf;
-		String buf2;
-		String new_str;
-
-		if (cur >= str.length()) {
+	private void rule_rem(int from, char[] str, int len, int cur) {
+		if (cur >= len) {
 			return;
 		}
 
 		/* 'ㄹ' elision rule */
-		if ((cur>0&&pcheck(str,cur-1,"l11")!=0)
-				&&(pcheck(str,cur,"11")!=0 || strncmp(str,cur,"오",0,2)==0)
-				&&pcheck(str,cur+1,"r11")!=0) {
-
-			String buf3;
-			new_str=insert(str,cur,"ᆯ");
-			buf3 = new_str;
-
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
-			rule_eomi_u(from,prev,buf3,cur+1);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L11))
+				&&(pcheck(str,len,cur,RULE_11) || startsWith(str,len,cur,"오"))
+				&&pcheck(str,len,cur+1,RULE_R11)) {
+
+			set(str,len);
+			insert(cur,"ᆯ");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+			keep();
+			rule_eomi_u(from,alt,altLen,cur+1);
 		}
 
 		/* 'ㅡ' elision rule */
-		if ((cur>0&&pcheck(str,cur-1,"l12")!=0)
-				&&pcheck(str,cur,"12")!=0
-				&&pcheck(str,cur+1,"r12")!=0
-				||(cur==1&&str.charAt(cur)!='ᅡ')
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L12))
+				&&pcheck(str,len,cur,RULE_12)
+				&&pcheck(str,len,cur+1,RULE_R12)
+				||(cur==1&&str[cur]!='ᅡ')
 		) {
-			new_str = replace(str,cur,"ᅥ");
-			new_str = insert(new_str,cur,"ᅳᄋ");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+			set(str,len);
+			replace(cur,'ᅥ');
+			insert(cur,"ᅳᄋ");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* 'ㅏ' elision rule */
-		if ((cur>0&&pcheck(str,cur-1,"l13")!=0)
-				&&pcheck(str,cur,"13")!=0 
-				&&pcheck(str,cur+1,"r13")!=0) {
-			new_str = insert(str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L13))
+				&&pcheck(str,len,cur,RULE_13) 
+				&&pcheck(str,len,cur+1,RULE_R13)) {
+			set(str,len);
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* 'ㅓ' elision rule */
-		if ((cur>0&&pcheck(str,cur-1,"l14")!=0)
-				&&pcheck(str,cur,"14")!=0
-				&&pcheck(str,cur+1,"r14")!=0) {
-			new_str=insert(str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L14))
+				&&pcheck(str,len,cur,RULE_14)
+				&&pcheck(str,len,cur+1,RULE_R14)) {
+			set(str,len);
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 	}
 
 	/**
 	 * It expands the morpheme chart regarding the contration rules about 'ㅗ', 'ㅜ', 'ㅚ', 'ㅣ'.
 	 * @param from - the start index for the segment position
-	 * @param prev - the passed part of the string
 	 * @param str - the next part of the string to check
+	 * @param len - the length of the string
 	 * @param cur - the current index of the string for checking the rules
 	 */
-	private void rule_shorten(int from,String prev,String str,int cur)
+	private void rule_shorten(int from, char[] str, int len, int cur)
 	{
-		String buf;
-		String buf2;
-		String new_str;
-		if (cur >= str.length()) {
+		if (cur >= len) {
 			return;
 		}
 
 		/* 'ㅗ', 'ㅜ' contraction rule */
-		if ((cur>0&&pcheck(str,cur-1,"l51")!=0)
-				&&pcheck(str,cur,"51")!=0
-				&&pcheck(str,cur+1,"r51")!=0) {
-			if (str.charAt(cur)=='ᅪ') {
-				new_str=replace(str,cur,"ᅩ");
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L51))
+				&&pcheck(str,len,cur,RULE_51)
+				&&pcheck(str,len,cur+1,RULE_R51)) {
+			if (str[cur]=='ᅪ') {
+				set(str,len);
+				replace(cur,'ᅩ');
 			} else {
-				new_str=replace(str,cur,"ᅮ");
+				set(str,len);
+				replace(cur,'ᅮ');
 			}
-			new_str=insert(new_str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* 'ㅚ' contraction rule */
-		if ((cur>0&&pcheck(str,cur-1,"l52")!=0)
-				&&pcheck(str,cur,"52")!=0
-				&&pcheck(str,cur+1,"r52")!=0) {
-			new_str=replace(str,cur,"ᅬ");
-			new_str=insert(new_str,cur+1,"어");
-			buf = new_str.substring(0,cur+1);
-			buf2 = new_str.substring(cur+1);
-			// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-			mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+		if ((cur>0&&pcheck(str,len,cur-1,RULE_L52))
+				&&pcheck(str,len,cur,RULE_52)
+				&&pcheck(str,len,cur+1,RULE_R52)) {
+			set(str,len);
+			replace(cur,'ᅬ');
+			insert(cur+1,"어");
+			change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 		}
 
 		/* 'ㅣ' contraction rule */
 		if (cur>0)
 		{
-			if (((cur>1 || (str.charAt(cur-1)!='ᄋ'))&&pcheck(str,cur-1,"l53")!=0)
-					&&pcheck(str,cur,"53")!=0
-					&&pcheck(str,cur+1,"r53")!=0) {
-
-				new_str=replace(str,cur,"ᅵ");
-				new_str=insert(new_str,cur+1,"어");
-				buf = new_str.substring(0,cur+1);
-				buf2 = new_str.substring(cur+1);
-				// System.out.println("Prev: " + Code.toString(prev.toCharArray()) + ", " + "Str: " + Code.toString(str.toCharArray()) + ", " + "Cur: " + cur);
-				mc.phonemeChange(from,buf,buf2,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
+			if (((cur>1 || (str[cur-1]!='ᄋ'))&&pcheck(str,len,cur-1,RULE_L53))
+					&&pcheck(str,len,cur,RULE_53)
+					&&pcheck(str,len,cur+1,RULE_R53)) {
+
+				set(str,len);
+				replace(cur,'ᅵ');
+				insert(cur+1,"어");
+				change(from,cur+1,TagSet.TAG_TYPE_YONGS,TagSet.TAG_TYPE_EOMIES,0);
 			}
 		}
 	}
 
 	/**
-	 * C style string compare method.
-	 * @param s1 - string 1
-	 * @param i1 - start index of string 1 for comparing
-	 * @param s2 - string 2
-	 * @param i2 - strart index of string 2 for comparing
-	 * @return 0 : equal, > 0 : string 1 is higher in alphabetical order, < 0 : string 1 is lower in alphabetical order
+	 * Checks whether the string is the same with the other string.
+	 * @param str - string 1
+	 * @param len - the length of string 1
+	 * @param str2 - string 2
+	 * @return true: the strings are the same, false: otherwise
 	 */
-	private int strcmp(String s1, int i1, String s2, int i2) {
-		int l1 = s1.length() - i1;
-		int l2 = s2.length() - i2;
-
-		int len = l1;
-		boolean diff = false;
-
-		if (len > l2) {
-			len = l2;
-		}
-
-		while (len-- > 0) {
-			if (s1.charAt(i1++) != s2.charAt(i2++)) {
-				diff = true;
-				break;
-			}
-		}
-
-		if (diff == false && l1 != l2) {
-			if (l1 > l2) {
-				return s1.charAt(i1);
-			} else {
-				return -s2.charAt(i2);
-			}
-		}
-		return s1.charAt(i1-1) - s2.charAt(i2-1);
+	private boolean equals(char[] str, int len, String str2) {
+		return len == str2.length() && startsWith(str, len, 0, str2);
 	}
 
 	/**
-	 * C style string compare method for the specified length.
-	 * @param s1 - string 1
-	 * @param i1 - start index of string 1 for comparing
-	 * @param s2 - string 2
-	 * @param i2 - strart index of string 2 for comparing
-	 * @param len - the number of characters to compare
-	 * @return 0 : equal, > 0 : string 1 is higher in alphabetical order, < 0 : string 1 is lower in alphabetical order
+	 * Checks whether the string has the other string at the specified index.
+	 * @param str - string 1
+	 * @param len - the length of string 1
+	 * @param idx - start index of string 1 for comparing
+	 * @param str2 - string 2
+	 * @return true: string 2 is found at the index, false: otherwise
 	 */
-	private int strncmp(String s1, int i1, String s2, int i2, int len) {
-		if (s1.length() - i1 < len) {
-			return 1;
-		} else if (s2.length() - i2 < len) {
-			return -1;
-		}
-		while (len-- > 0) {
-			if (s1.charAt(i1++) != s2.charAt(i2++)) {
-				break;
+	private boolean startsWith(char[] str, int len, int idx, String str2) {
+		int n = str2.length();
+		if (idx < 0 || len - idx < n) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (str[idx + i] != str2.charAt(i)) {
+				return false;
 			}
 		}
-		return s1.charAt(i1-1) - s2.charAt(i2-1);
+		return true;
 	}
 }
 
@@ -0,0 +1,109 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import kr.ac.kaist.swrc.jhannanum.comm.LatticeScorer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.HmmPosTagger.ProbabilityDBM;
+
+/**
+ * This class scores the morphemes of an eojeol with the statistic data of the HMM POS tagger.
+ * The score of an eojeol is log P(T_i, W_i) which the tagger computes for the eojeol by itself,
+ * the sum of log P(w|t) + log P(t|t_prev) - log P(t) of its morphemes and the blank at the end.
+ * The transitions between the eojeols are not scored, since they depend on the other eojeols.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class HmmScorer implements LatticeScorer {
+	/** the tag of the blank between eojeols */
+	final private static String BLANK_TAG = "bnk";
+	
+	/** the log probability for the data which is not found, the same with the tagger */
+	final private static double PCONSTANT = -20.0;
+	
+	/** the probability data of P(w|t) */
+	private ProbabilityDBM pwt = null;
+	
+	/** the probability data of P(t|t_prev) and P(t) */
+	private ProbabilityDBM ptt = null;
+	
+	/**
+	 * The buffer for the keys of the probability data on each thread, which is reused for every look-up.
+	 * The lattices are scored on the thread of the plug-in which takes them, not only on the analyzer's.
+	 */
+	private static final ThreadLocal<StringBuilder> keyBuf = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder();
+		}
+	};
+	
+	/**
+	 * Constructor.
+	 * @param pwt - the probability data of P(w|t), 'pwt.pos' of the tagger
+	 * @param ptt - the probability data of P(t|t_prev) and P(t), 'ptt.pos' of the tagger
+	 */
+	public HmmScorer(ProbabilityDBM pwt, ProbabilityDBM ptt) {
+		this.pwt = pwt;
+		this.ptt = ptt;
+	}
+	
+	/**
+	 * Returns log P(w|t) + log P(t|t_prev) - log P(t) of the morpheme.
+	 * @param prevTag - the tag of the previous morpheme, null at the start of the eojeol
+	 * @param morpheme - the morpheme, null for the end of the eojeol
+	 * @param tag - the morpheme tag, null for the end of the eojeol
+	 * @return the log probability
+	 */
+	public double score(String prevTag, String morpheme, String tag) {
+		StringBuilder buf = keyBuf.get();
+		
+		if (prevTag == null) {
+			prevTag = BLANK_TAG;
+		}
+		if (morpheme == null) {
+			// P(w|bnk) = 1
+			return getProb(ptt, makeKey(buf, prevTag, '-', BLANK_TAG)) - getProb(ptt, BLANK_TAG);
+		}
+		return getProb(pwt, makeKey(buf, morpheme, '/', tag)) + getProb(ptt, makeKey(buf, prevTag, '-', tag))
+				- getProb(ptt, tag);
+	}
+	
+	/**
+	 * Makes the key of the probability data in the buffer, which is valid until the next key is made.
+	 * @param buf - the buffer of the thread
+	 * @param first - the first part of the key
+	 * @param sep - the separator
+	 * @param second - the second part of the key
+	 * @return the key
+	 */
+	private CharSequence makeKey(StringBuilder buf, String first, char sep, String second) {
+		buf.setLength(0);
+		buf.append(first).append(sep).append(second);
+		return buf;
+	}
+	
+	/**
+	 * Returns the probability of the specified key.
+	 * @param dbm - the probability data
+	 * @param key - the key
+	 * @return the log probability, PCONSTANT if the key is not in the data
+	 */
+	private double getProb(ProbabilityDBM dbm, CharSequence key) {
+		double[] prob = dbm.get(key);
+		return (prob == null) ? PCONSTANT : prob[0];
+	}
+}
@@ -17,6 +17,7 @@ along with KoNLP.  If not, see <http://www.gnu.org/licenses/>
 */
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -26,6 +27,9 @@ import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
 import kr.ac.kaist.swrc.jhannanum.comm.PlainSentence;
 import kr.ac.kaist.swrc.jhannanum.comm.SetOfSentences;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.MorphAnalyzer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer.Trie.INFO;
+import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.JSONZipReader;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
@@ -41,7 +45,7 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	private AnalyzedDic analyzedDic = null;
 	
 	/** Default morpheme dictionary. */
-	private Trie systemDic = null;
+	private MorphemeDic systemDic = null;
 	
 	/** Additional morpheme dictionary that users can modify for their own purpose. */
 	private Trie userDic = null;
@@ -58,15 +62,27 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	/** Impossible connection rules. */
 	private ConnectionNot connectionNot = null;
 
+	/** The read-only dictionaries shared with the other analyzers. */
+	private SharedDic sharedDic = null;
+
+	/** The scorer of the best results shared with the other analyzers, null if not used. */
+	private HmmScorer scorer = null;
+
 	/** Lattice-style morpheme chart. */
 	private MorphemeChart chart = null;
 	
-	/** SIMTI structure for reverse segment position. */
-	private Simti simti = null;
-	
 	/** Eojeol list */
 	private LinkedList<Eojeol> eojeolList = null;
 	
+	/** The cache of the analysis results, null if it is not used */
+	private EojeolCache cache = null;
+	
+	/** The version of the user dictionary, which is increased whenever the dictionary is changed */
+	private volatile int userDicVersion = 0;
+	
+	/** The version of the user dictionary which the results in the cache were analyzed with */
+	private int cacheVersion = 0;
+	
 	/** Post-processor to deal with some exceptions */
 	private PostProcessor postProc = null;
 	
@@ -81,38 +97,49 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	/**
 	 * It processes the input plain eojeol by analyzing it or searching the pre-analyzed dictionary.
 	 * @param plainEojeol - plain eojeol to analyze
+	 * @param useCache - true: the cache of the analysis results is searched and updated
 	 * @return the morphologically analyzed eojeol list
 	 */
-	private Eojeol[] processEojeol(String plainEojeol) {
-		String analysis = analyzedDic.get(plainEojeol);
-
-		eojeolList.clear();
+	private Eojeol[] processEojeol(String plainEojeol, boolean useCache) {
+		Eojeol[] analysis = analyzedDic.get(plainEojeol);
 		
 		if (analysis != null) {
 			// the eojeol was registered in the pre-analyzed dictionary
-			StringTokenizer st = new StringTokenizer(analysis, "^");
-			while (st.hasMoreTokens()) {
-				String analyzed = st.nextToken();
-				String[] tokens = analyzed.split("\\+|/");
-				
-				String[] morphemes = new String[tokens.length / 2];
-				String[] tags = new String[tokens.length / 2];
-				
-				for (int i = 0, j = 0; i < morphemes.length; i++) {
-					morphemes[i] = tokens[j++];
-					tags[i] = tokens[j++];
-				}
-				Eojeol eojeol = new Eojeol(morphemes, tags);
-				eojeolList.add(eojeol);
+			return analysis;
+		}
+		
+		if (useCache) {
+			// the results analyzed with the previous user dictionary are dropped
+			int version = userDicVersion;
+			if (version != cacheVersion) {
+				cache.clear();
+				cacheVersion = version;
+			}
+			if ((analysis = cache.get(plainEojeol)) != null) {
+				return analysis;
 			}
-		} else {
-			// analyze the input plain eojeol
-			chart.init(plainEojeol);
-			chart.analyze();
-			chart.getResult();
 		}
 		
-		return eojeolList.toArray(new Eojeol[0]);
+		// analyze the input plain eojeol
+		eojeolList.clear();
+		chart.init(plainEojeol);
+		chart.analyze();
+		chart.getResult();
+		
+		analysis = eojeolList.toArray(new Eojeol[0]);
+		// the results cut by the work budget are not cached, since the cut depends on the time
+		if (useCache && !chart.isBudgetExceeded()) {
+			cache.put(plainEojeol, analysis);
+		}
+		return analysis;
+	}
+	
+	/**
+	 * Returns the cache of the analysis results, which has the hit and miss counts.
+	 * @return the cache, null if the cache is not used
+	 */
+	public EojeolCache getEojeolCache() {
+		return cache;
 	}
 
 	/**
@@ -120,6 +147,12 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	 * @return all the possible morphological analysis results
 	 */
 	public SetOfSentences morphAnalyze(PlainSentence ps) {
+		MorphemeDic documentDic = getDocumentDic(ps.getUserDicLayer());
+		chart.setDocumentDic(documentDic);
+		
+		// the results with the dictionary of a document are not cached
+		boolean useCache = (cache != null && documentDic == null);
+		
 		StringTokenizer st = new StringTokenizer(ps.getSentence(), " \t");
 		
 		String plainEojeol = null;
@@ -132,7 +165,7 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 			plainEojeol = st.nextToken();
 			
 			plainEojeolArray.add(plainEojeol);
-			eojeolSetArray.add(processEojeol(plainEojeol));
+			eojeolSetArray.add(processEojeol(plainEojeol, useCache));
 		}
 		
 		SetOfSentences sos = new SetOfSentences(ps.getDocumentID(), ps.getSentenceID(),
@@ -150,30 +183,51 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	 */
 	public void initialize(String baseDir, String configFile) throws Exception {
 		JSONZipReader json = new JSONZipReader(baseDir, configFile);
-		tagSet = new TagSet();
-		tagSet.init(baseDir, json.getValue("tagset"), TagSet.TAG_SET_KAIST);
-
-		connection = new Connection();
-		connection.init(baseDir, json.getValue("connections"), tagSet.getTagCount(), tagSet);
-
-		connectionNot = new ConnectionNot();
-		connectionNot.init(baseDir, json.getValue("connections_not"), tagSet);
-
-		analyzedDic = new AnalyzedDic();
-		analyzedDic.readDic(baseDir, json.getValue("dic_analyzed"));
+		// the image can't be mapped from the zip file, so it is looked up next to the zip file
+		String fileDicSystemImage = null;
+		if (json.getValue("dic_system_image", null) != null) {
+			fileDicSystemImage = new File(new File(baseDir).getAbsoluteFile().getParentFile(),
+					json.getValue("dic_system_image")).getPath();
+		}
 
-		systemDic = new Trie(Trie.DEFAULT_TRIE_BUF_SIZE_SYS);
-		systemDic.read_dic(baseDir, json.getValue("dic_system"), tagSet);
+		// the read-only dictionaries are loaded once, and shared by the analyzers using the same files
+		sharedDic = SharedDic.acquire(baseDir, json.getValue("tagset"), json.getValue("connections"),
+				json.getValue("connections_not"), json.getValue("dic_analyzed"), json.getValue("dic_system"),
+				fileDicSystemImage, json.getValue("dic_system_type", SharedDic.DIC_SYSTEM_TYPE_DAT));
+		tagSet = sharedDic.tagSet;
+		connection = sharedDic.connection;
+		connectionNot = sharedDic.connectionNot;
+		analyzedDic = sharedDic.analyzedDic;
+		systemDic = sharedDic.systemDic;
 		//fixed points
 		//userDic = new Trie(Trie.DEFAULT_TRIE_BUF_SIZE_SYS);
 		//userDic.read_dic(baseDir, json.getValue("dic_user"),tagSet);
 
-		numDic = new NumberDic();
-		simti = new Simti();
-		simti.init();
+		numDic = new NumberDic(tagSet);
 		eojeolList = new LinkedList<Eojeol>();
 		
-		chart = new MorphemeChart(tagSet, connection, systemDic, null, numDic, simti, eojeolList);
+		chart = new MorphemeChart(tagSet, connection, systemDic, null, numDic, eojeolList);
+		// 0: all the analysis results, otherwise only the best results are generated up to the number
+		// the results are ranked without the eojeols around, so a number which cuts the results can change the tagging
+		int maxCandidates = Integer.parseInt(json.getValue("max_candidates", "0"));
+		chart.setMaxCandidates(maxCandidates);
+		// the best results are ranked with the statistic data of the tagger, or the fewest morphemes first without it
+		if (maxCandidates > 0 && json.getValue("pwt.pos", null) != null && json.getValue("ptt.pos", null) != null) {
+			scorer = SharedDic.acquireScorer(baseDir, json.getValue("pwt.pos"), json.getValue("ptt.pos"));
+			chart.setScorer(scorer);
+		}
+		chart.setConnectionNot(connectionNot);
+		// the work budget for each eojeol, 0: no limit, which is the default
+		// budget_time_ms makes the results nondeterministic, since they depend on the load of the machine
+		chart.setWorkBudget(Integer.parseInt(json.getValue("budget_morphemes", "0")),
+				Integer.parseInt(json.getValue("budget_connections", "0")),
+				Integer.parseInt(json.getValue("budget_results", "0")),
+				Long.parseLong(json.getValue("budget_time_ms", "0")) * 1000000L);
+		
+		int cacheSize = Integer.parseInt(json.getValue("eojeol_cache_size", String.valueOf(EojeolCache.DEFAULT_CACHE_SIZE)));
+		if (cacheSize > 0) {
+			cache = new EojeolCache(cacheSize);
+		}
 		
 		postProc = new PostProcessor();
 	}
@@ -183,24 +237,20 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	 */
 	public void shutdown() {
 
-		if(tagSet != null){
-			tagSet.clear();
-			tagSet = null;
-		}
-		if(connection != null){
-			connection.clear();
-			connection = null;
-		}
-		if(connectionNot != null){
-			connectionNot.clear();
-			connectionNot = null;
-		}
-		if(analyzedDic != null){
-			analyzedDic.clear();
+		// the shared dictionaries may be used by the other analyzers, so they are released, not cleared
+		if(sharedDic != null){
+			SharedDic.release(sharedDic);
+			sharedDic = null;
 		}
-		if(systemDic != null){
-			systemDic = null;
+		if(scorer != null){
+			SharedDic.releaseScorer(scorer);
+			scorer = null;
 		}
+		tagSet = null;
+		connection = null;
+		connectionNot = null;
+		analyzedDic = null;
+		systemDic = null;
 		if(userDic != null){
 			userDic = null;
 		}
@@ -208,9 +258,6 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 	
 			numDic = null;
 		}
-		if(simti != null){
-			simti = null;
-		}
 		if(eojeolList != null){
 			eojeolList.clear();
 			eojeolList = null;
@@ -218,17 +265,104 @@ public class KoNLPChartMorphAnalyzer implements MorphAnalyzer {
 		if(chart != null){
 			chart = null;
 		}
+		if(cache != null){
+			cache.clear();
+			cache = null;
+		}
 		if(postProc != null){
 			postProc = null;
 		}
 		
 	}
 
+	/**
+	 * Reloads the user dictionary. The new dictionary is built aside and published to the chart at once,
+	 * so the analysis in progress keeps using the previous dictionary until its eojeol is done.
+	 * @param path - the file path of the user dictionary, null keeps the current dictionary
+	 */
+	@Override
+	public synchronized void loadUserDic(String path) throws IOException {
+		if (path == null) {
+			return;
+		}
+		// the trie is sized from the number of entries, and grows on demand
+		Trie newDic = new Trie();
+		newDic.read_dic(path,tagSet);
+
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+	}
+
+	/**
+	 * Adds a morpheme to the user dictionary without reloading the whole dictionary.
+	 * The change is made on a copy of the dictionary, which is published to the chart when it is done.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: added, false: the tag is not in the tag set
+	 */
 	@Override
-	public void loadUserDic(String path) throws IOException {
-		//set same with System dic size
-		userDic = new Trie(Trie.DEFAULT_TRIE_BUF_SIZE_SYS * 4);
-		userDic.read_dic(path,tagSet);
-		chart.setUserDic(userDic);
+	public synchronized boolean addEntry(String word, String tag) {
+		Trie newDic = (userDic == null) ? new Trie() : userDic.copy();
+		INFO info = newDic.make_info(tag, tagSet);
+		if (info == null || newDic.store(Code.toTripleArray(word), info) != 0) {
+			return false;
+		}
+
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+		return true;
+	}
+
+	/**
+	 * Removes a morpheme from the user dictionary without reloading the whole dictionary.
+	 * The change is made on a copy of the dictionary, which is published to the chart when it is done.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: removed, false: the morpheme with the tag is not in the user dictionary
+	 */
+	@Override
+	public synchronized boolean removeEntry(String word, String tag) {
+		if (userDic == null) {
+			return false;
+		}
+		Trie newDic = userDic.copy();
+		INFO info = newDic.make_info(tag, tagSet);
+		if (info == null || newDic.remove(Code.toTripleArray(word), info) != 0) {
+			return false;
+		}
+
+		userDic = newDic;
+		chart.setUserDic(newDic);
+		userDicVersion++;
+		return true;
+	}
+
+	/**
+	 * Loads a user dictionary as a layer, which is a small trie independent of the shared dictionaries.
+	 * @param path - the file path of the user dictionary
+	 * @return the user dictionary layer
+	 * @throws IOException
+	 */
+	@Override
+	public UserDicLayer loadUserDicLayer(String path) throws IOException {
+		// starts with no free node, so the buffer is sized from the number of entries by read_dic()
+		Trie dic = new Trie(Trie.START_NODE + 2);
+		dic.read_dic(path, tagSet);
+		return dic;
+	}
+
+	/**
+	 * Returns the dictionary of the user dictionary layer which the sentence carries.
+	 * @param layer - the layer made by loadUserDicLayer(), null for no layer
+	 * @return the dictionary of the layer, null if there is no layer or it was not made by this analyzer
+	 */
+	private MorphemeDic getDocumentDic(UserDicLayer layer) {
+		// a layer made by another analyzer is ignored for every sentence of the document
+		if (!(layer instanceof MorphemeDic)) {
+			return null;
+		}
+		return (MorphemeDic)layer;
 	}
 }
@@ -0,0 +1,225 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.util.Arrays;
+
+/**
+ * The layered view of the morpheme dictionaries, which searches all the dictionaries at once.
+ *
+ * The layers are kept in the order of priority, e.g. the system dictionary, the user dictionaries,
+ * and the number dictionary. match() walks all the layers with the keys of a string in one pass,
+ * and collects the prefixes of the string which have the morpheme information in any layer.
+ * The matches of the same length are in the order of the layers, so the morphemes from the layer
+ * of higher priority come first in the chart.
+ *
+ * A layer can be marked to have only the longest match, which is for the number dictionary.
+ * The view is not thread-safe, and each morpheme chart has its own view.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class LayeredDic {
+	/** the dictionaries in the order of priority */
+	private MorphemeDic[] layers = null;
+
+	/** whether only the longest match of each layer is used */
+	private boolean[] longestOnly = null;
+
+	/** the number of layers */
+	private int layerCount = 0;
+
+	/** the current node of each layer while walking, 0: the layer has no more match */
+	private int[] nodes = null;
+
+	/** the last match of each layer, which is for the layers having only the longest match */
+	private int[] lastMatch = null;
+
+	/** the layer of each match */
+	private int[] matchLayer = null;
+
+	/** the node of each match, 0: the match was replaced with the longer one */
+	private int[] matchNode = null;
+
+	/** the number of matches */
+	private int matchCount = 0;
+
+	/** the end of the matches for each length, the matches of the length n are [lengthEnd[n - 1], lengthEnd[n]) */
+	private int[] lengthEnd = null;
+
+	/**
+	 * Constructor.
+	 */
+	public LayeredDic() {
+		layers = new MorphemeDic[4];
+		longestOnly = new boolean[4];
+		nodes = new int[4];
+		lastMatch = new int[4];
+		matchLayer = new int[64];
+		matchNode = new int[64];
+		lengthEnd = new int[SegmentPosition.INITIAL_SEGMENT + 1];
+	}
+
+	/**
+	 * Removes all the layers.
+	 */
+	public void clear() {
+		Arrays.fill(layers, 0, layerCount, null);
+		layerCount = 0;
+		matchCount = 0;
+	}
+
+	/**
+	 * Adds the dictionary as the layer of the lowest priority.
+	 * @param dic - the dictionary to add, which is ignored if it is null
+	 * @param longest - true: only the longest match of the dictionary is used, false: all the matches are used
+	 */
+	public void add(MorphemeDic dic, boolean longest) {
+		if (dic == null) {
+			return;
+		}
+		if (layerCount == layers.length) {
+			layers = Arrays.copyOf(layers, layerCount * 2);
+			longestOnly = Arrays.copyOf(longestOnly, layerCount * 2);
+			nodes = new int[layerCount * 2];
+			lastMatch = new int[layerCount * 2];
+		}
+		layers[layerCount] = dic;
+		longestOnly[layerCount] = longest;
+		layerCount++;
+	}
+
+	/**
+	 * Returns the number of layers.
+	 * @return the number of layers
+	 */
+	public int getLayerCount() {
+		return layerCount;
+	}
+
+	/**
+	 * Returns the dictionary of the specified layer.
+	 * @param layer - the index of the layer
+	 * @return the dictionary of the layer
+	 */
+	public MorphemeDic getLayer(int layer) {
+		return layers[layer];
+	}
+
+	/**
+	 * Walks all the layers with the specified keys, and collects the prefixes which have the morpheme information.
+	 * @param keys - the keys to search
+	 * @param length - the number of keys to search
+	 * @return the number of matches
+	 */
+	public int match(char[] keys, int length) {
+		int alive = layerCount;
+		int depth;
+
+		if (length + 1 > lengthEnd.length) {
+			lengthEnd = new int[length + 1];
+		}
+		matchCount = 0;
+		lengthEnd[0] = 0;
+		for (int l = 0; l < layerCount; l++) {
+			nodes[l] = Trie.START_NODE;
+			lastMatch[l] = -1;
+		}
+
+		for (depth = 0; depth < length && alive > 0; depth++) {
+			for (int l = 0; l < layerCount; l++) {
+				if (nodes[l] == 0) {
+					continue;
+				}
+
+				MorphemeDic dic = layers[l];
+				int node = dic.node_look(keys[depth], nodes[l]);
+				nodes[l] = node;
+				if (node == 0) {
+					alive--;
+					continue;
+				}
+
+				if (dic.info_begin(node) < dic.info_end(node)) {
+					if (longestOnly[l] && lastMatch[l] >= 0) {
+						matchNode[lastMatch[l]] = 0;
+					}
+					lastMatch[l] = addMatch(l, node);
+				}
+			}
+			lengthEnd[depth + 1] = matchCount;
+		}
+
+		// no layer has the longer prefixes
+		for ( ; depth < length; depth++) {
+			lengthEnd[depth + 1] = matchCount;
+		}
+		return matchCount;
+	}
+
+	/**
+	 * Returns the first match of the specified length.
+	 * @param length - the length of the prefix
+	 * @return the index of the first match
+	 */
+	public int matchBegin(int length) {
+		return lengthEnd[length - 1];
+	}
+
+	/**
+	 * Returns the end of the matches of the specified length.
+	 * @param length - the length of the prefix
+	 * @return the index after the last match (exclusive)
+	 */
+	public int matchEnd(int length) {
+		return lengthEnd[length];
+	}
+
+	/**
+	 * Returns the layer of the specified match.
+	 * @param match - the index of the match
+	 * @return the index of the layer
+	 */
+	public int matchLayer(int match) {
+		return matchLayer[match];
+	}
+
+	/**
+	 * Returns the node of the specified match, which has the morpheme information in the dictionary of the layer.
+	 * @param match - the index of the match
+	 * @return the node of the match, 0: the match is not used since the layer has the longer one
+	 */
+	public int matchNode(int match) {
+		return matchNode[match];
+	}
+
+	/**
+	 * Adds a match.
+	 * @param layer - the index of the layer
+	 * @param node - the node which has the morpheme information
+	 * @return the index of the match
+	 */
+	private int addMatch(int layer, int node) {
+		if (matchCount == matchNode.length) {
+			matchLayer = Arrays.copyOf(matchLayer, matchCount * 2);
+			matchNode = Arrays.copyOf(matchNode, matchCount * 2);
+		}
+		matchLayer[matchCount] = layer;
+		matchNode[matchCount] = node;
+		return matchCount++;
+	}
+}
\ No newline at end of file
@@ -18,61 +18,48 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 
+import kr.ac.kaist.swrc.jhannanum.comm.BestResults;
 import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.comm.LatticeScorer;
+import kr.ac.kaist.swrc.jhannanum.comm.MorphemeLattice;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer.SegmentPosition.Position;
-import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer.Trie.INFO;
-import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer.Trie.TNODE;
 import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
 /**
  * This class is for the lattice style morpheme chart which is a internal data structure for morphological analysis without backtracking.
+ * The morpheme nodes are kept in the parallel arrays indexed by the node, and the connections of each node are
+ * a range of one connection list. The arrays are reused for the eojeols, and they grow when an eojeol needs more.
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class MorphemeChart {
-	/**
-	 * A morpheme node in the lattice style chart.
-	 * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
-	 */
-	public class Morpheme {
-		/** morpheme tag */
-		public int tag;
-		
-		/** phoneme */
-		public int phoneme;
-		
-		/** the index of the next node */
-		public int nextPosition;
-		
-		/** the type of the next morpheme */
-		public int nextTagType;
-		
-		/** the state of current processing */
-		public int state;
-		
-		/** the number of morphemes connected */
-		public int connectionCount;
-		
-		/** the list of the morphemes connected */
-		public int[] connection = new int[MAX_MORPHEME_CONNECTION];
-		
-		/** plain string */
-		public String str = "";
-	}
-	
 	/** the reserved word for replacement of Chinese characters */
 	final static private String CHI_REPLACE = "HAN_CHI";
 	
 	/** the reserved word for replacement of English alphabets */
 	final static private String ENG_REPLACE = "HAN_ENG";
 	
-	/** the list for the replacement of Chinese character */
-	private LinkedList<String> chiReplacementList = null;
+	/** the plain eojeol which has the English and Chinese strings replaced with the reserved words */
+	private String replaceSource = null;
+	
+	/** the begin and end offsets in replaceSource of the strings replaced with CHI_REPLACE */
+	private int[] chiSpans = null;
+	
+	/** the number of the strings replaced with CHI_REPLACE */
+	private int chiSpanCount = 0;
+	
+	/** the begin and end offsets in replaceSource of the strings replaced with ENG_REPLACE */
+	private int[] engSpans = null;
 	
-	/** the list for the replacement of English alphabets */
-	private LinkedList<String> engReplacementList = null;
+	/** the number of the strings replaced with ENG_REPLACE */
+	private int engSpanCount = 0;
+	
+	/** the buffer to make the morpheme strings which have the reserved words */
+	private StringBuilder replaceBuf = null;
 	
 	/** the index for replacement of English alphabets */
 	private int engReplaceIndex = 0;
@@ -80,11 +67,11 @@ public class MorphemeChart {
 	/** the index for replacement of Chinese characters */
 	private int chiReplaceIndex = 0;
 	
-	/** the maximum number of connections between one morpheme and others */
-	final private static int MAX_MORPHEME_CONNECTION = 30;
+	/** the initial number of morpheme nodes in the chart */
+	final private static int INITIAL_CHART_SIZE = 256;
 	
-	/** the maximum number of morpheme nodes in the chart */
-	final private static int MAX_MORPHEME_CHART = 2046;
+	/** the initial number of connections in the chart */
+	final private static int INITIAL_CONNECTION_SIZE = 1024;
 	
 	/** the processing state - incomplete */
 	final private static int MORPHEME_STATE_INCOMPLETE = 2;
@@ -98,8 +85,38 @@ public class MorphemeChart {
 	/** the processing state - fail */
 	final private static int MORPHEME_STATE_FAIL = 0;
 	
-	/** the morpheme chart */
-	public Morpheme[] chart = null;
+	/** the morpheme tag of each node */
+	private int[] morphTag = null;
+	
+	/** the phoneme of each node */
+	private int[] morphPhoneme = null;
+	
+	/** the index of the next segment position of each node */
+	private int[] morphNextPosition = null;
+	
+	/** the type of the next morpheme of each node */
+	private int[] morphNextTagType = null;
+	
+	/** the state of current processing of each node */
+	private int[] morphState = null;
+	
+	/** the start index of the plain string of each node in the surface buffer */
+	private int[] morphBegin = null;
+	
+	/** the end index of the plain string of each node in the surface buffer (exclusive) */
+	private int[] morphEnd = null;
+	
+	/** the start index of the connections of each node in the connection list */
+	private int[] connectionBegin = null;
+	
+	/** the number of morphemes connected to each node */
+	private int[] connectionCount = null;
+	
+	/** the list of the morphemes connected, which has the connections of the nodes one after another */
+	private int[] connections = null;
+	
+	/** the last index of the connection list */
+	private int connectionEnd = 0;
 	
 	/** the last index of the chart */
 	public int chartEnd = 0;
@@ -110,29 +127,58 @@ public class MorphemeChart {
 	/** the connection rules */
 	private Connection connection = null;
 	
-	/** segment position */
+	/** the impossible connection rules of morphemes, null if they are not used */
+	private ConnectionNot connectionNot = null;
+	
+	/**
+	 * The segment positions of each thread, which are shared by the charts on the same thread
+	 * since a chart uses them only while it analyzes an eojeol. They start small and grow for the long eojeols.
+	 */
+	private static final ThreadLocal<SegmentPosition> workspace = new ThreadLocal<SegmentPosition>() {
+		@Override
+		protected SegmentPosition initialValue() {
+			return new SegmentPosition();
+		}
+	};
+	
+	/** segment position of the thread, which is set by init() */
 	private SegmentPosition sp = null;
 	
-	/** string buffer */
-	private String bufString = "";
+	/**
+	 * the surface buffer which has the plain strings of the morphemes in the chart, the eojeol in the
+	 * triple encoding is at the front, and the strings changed by the expansion rules follow it
+	 */
+	private char[] surface = new char[256];
+	
+	/** the length of the strings in the surface buffer */
+	private int surfaceLength = 0;
+	
+	/** the length of the eojeol in the triple encoding, which is the segment positions 1 to eojeolLength */
+	private int eojeolLength = 0;
 	
 	/** path of segmentation */
-	private int[] segmentPath = new int[SegmentPosition.MAX_SEGMENT];
+	private int[] segmentPath = new int[SegmentPosition.INITIAL_SEGMENT];
+	
+	/** the keys on the path of segmentation */
+	private char[] segmentKeys = new char[SegmentPosition.INITIAL_SEGMENT];
 	
 	/** chart expansion */
 	private Exp exp = null;
 	
 	/** system morpheme dictionary */
-	private Trie systemDic = null;
+	private MorphemeDic systemDic = null;
 	
-	/** user morpheme dictionary */
-	private Trie userDic = null;
+	/** user morpheme dictionaries published by setUserDics(), which are pinned by init() for each eojeol */
+	private volatile MorphemeDic[] publishedUserDics = null;
+	
+	/** user morpheme dictionary of the document being analyzed, which is set by the analyzer for each sentence */
+	private MorphemeDic documentDic = null;
 	
 	/** number dictionary - automata */
 	private NumberDic numDic = null;
 	
-	/** SIMple Trie Index */
-	private Simti simti = null;
+	/** the layers of the system, user and number dictionaries searched at once */
+	private LayeredDic dics = null;
 	
 	/** the number of analysis results printed */
 	private int printResultCnt = 0;
@@ -146,45 +192,119 @@ public class MorphemeChart {
 	/** the list of morpheme tags analyzed */
 	private ArrayList<String> resTags = null;
 	
+	/** the maximum number of analysis results in the best-first order, 0: all the results in the order of the chart */
+	private int maxCandidates = 0;
+	
+	/** the scorer of the analysis results in the best-first order and of the lattices, null for the number of morphemes */
+	private LatticeScorer scorer = null;
+	
+	/** the morpheme in the chart for each node of the lattice */
+	private int[] latticeMorpheme = null;
+	
+	/** the index of the next English replacement after each node of the lattice */
+	private int[] latticeEngIndex = null;
+	
+	/** the index of the next Chinese replacement after each node of the lattice */
+	private int[] latticeChiIndex = null;
+	
+	/** the next node of the lattice which was made from the same morpheme in the chart, 0: none */
+	private int[] latticeSame = null;
+	
+	/** the first node of the lattice made from each morpheme in the chart, 0: none */
+	private int[] chartLattice = null;
+	
+	/** the maximum number of morphemes in the chart for an eojeol, 0: no limit */
+	private int budgetMorphemes = 0;
+	
+	/** the maximum number of connections in the chart for an eojeol, 0: no limit */
+	private int budgetConnections = 0;
+	
+	/** the maximum number of analysis results generated from the chart for an eojeol, 0: no limit but MAX_CANDIDATE_NUM */
+	private int budgetResults = 0;
+	
+	/** the maximum time to analyze an eojeol in nanoseconds, 0: no limit */
+	private long budgetNanos = 0;
+	
+	/** the value of System.nanoTime() when the analysis of the eojeol runs out of time */
+	private long deadline = 0;
+	
+	/** the number of the budget checks, the time is read every 16 checks */
+	private int budgetChecks = 0;
+	
+	/** true: the analysis of the eojeol ran out of the work budget */
+	private boolean budgetExceeded = false;
+	
 	/**
 	 * Constructor.
 	 * @param tagSet - the morpheme tag set
 	 * @param connection - the morpheme connection rules
 	 * @param systemDic - the system morpheme dictionary
 	 * @param userDic - the user morpheme dictionary
-	 * @param numDic - the number dictionary
-	 * @param simti - the SIMple Trie Index
+	 * @param numDic - the number dictionary, which should be made with the tag set
 	 * @param resEojeolList - the list of eojeols to store the analysis result
 	 */
-	public MorphemeChart(TagSet tagSet, Connection connection, Trie systemDic, Trie userDic, NumberDic numDic, Simti simti, LinkedList<Eojeol> resEojeolList) {
-		chart = new Morpheme[MAX_MORPHEME_CHART];
-		for (int i = 0; i < MAX_MORPHEME_CHART; i++) {
-			chart[i] = new Morpheme();
-		}
+	public MorphemeChart(TagSet tagSet, Connection connection, MorphemeDic systemDic, MorphemeDic userDic, NumberDic numDic, LinkedList<Eojeol> resEojeolList) {
+		morphTag = new int[INITIAL_CHART_SIZE];
+		morphPhoneme = new int[INITIAL_CHART_SIZE];
+		morphNextPosition = new int[INITIAL_CHART_SIZE];
+		morphNextTagType = new int[INITIAL_CHART_SIZE];
+		morphState = new int[INITIAL_CHART_SIZE];
+		morphBegin = new int[INITIAL_CHART_SIZE];
+		morphEnd = new int[INITIAL_CHART_SIZE];
+		connectionBegin = new int[INITIAL_CHART_SIZE];
+		connectionCount = new int[INITIAL_CHART_SIZE];
+		connections = new int[INITIAL_CONNECTION_SIZE];
 		
-		this.sp = new SegmentPosition();
 		this.tagSet = tagSet;
 		this.connection = connection;
 		this.exp = new Exp(this, tagSet);
 		this.systemDic = systemDic;
-		this.userDic = userDic;
 		this.numDic = numDic;
-		this.simti = simti;
+		this.dics = new LayeredDic();
+		setUserDic(userDic);
 		this.resEojeols = resEojeolList;
 		
 		resMorphemes = new ArrayList<String>();
 		resTags = new ArrayList<String>();
 		
-		chiReplacementList = new LinkedList<String>();
-		engReplacementList = new LinkedList<String>();
+		chiSpans = new int[16];
+		engSpans = new int[16];
+		replaceBuf = new StringBuilder();
 	}
 	
 	
 	/**
-	 * @param userDic the userDic to set
+	 * Publishes the user dictionary. It is used from the next eojeol initialized by init(),
+	 * and the eojeol being analyzed keeps the dictionary it was started with.
+	 * The dictionary must not be modified after it is published.
+	 * @param userDic the userDic to set, null for no user dictionary
 	 */
-	public void setUserDic(Trie userDic) {
-		this.userDic = userDic;
+	public void setUserDic(MorphemeDic userDic) {
+		if (userDic == null) {
+			setUserDics(new MorphemeDic[0]);
+		} else {
+			setUserDics(new MorphemeDic[] {userDic});
+		}
+	}
+
+	/**
+	 * Publishes the stack of user dictionaries in the order of priority, which are searched with
+	 * the system dictionary at once. They are used from the next eojeol initialized by init().
+	 * The dictionaries must not be modified after they are published.
+	 * @param userDics - the user dictionaries
+	 */
+	public void setUserDics(MorphemeDic[] userDics) {
+		this.publishedUserDics = userDics.clone();
+	}
+
+	/**
+	 * Sets the user dictionary layer of the document being analyzed, which has priority over the
+	 * other user dictionaries. Unlike setUserDics(), it must be called on the thread analyzing
+	 * the eojeols, and it is used from the next eojeol initialized by init().
+	 * @param documentDic - the user dictionary of the document, null for no document dictionary
+	 */
+	public void setDocumentDic(MorphemeDic documentDic) {
+		this.documentDic = documentDic;
 	}
 
 	/**
@@ -196,58 +316,115 @@ public class MorphemeChart {
 	 * @return the last index of the chart
 	 */
 	public int addMorpheme(int tag, int phoneme, int nextPosition, int nextTagType) {
-		chart[chartEnd].tag = tag;
-		chart[chartEnd].phoneme = phoneme;
-		chart[chartEnd].nextPosition = nextPosition;
-		chart[chartEnd].nextTagType = nextTagType;
-		chart[chartEnd].state = MORPHEME_STATE_INCOMPLETE;
-		chart[chartEnd].connectionCount = 0;
+		if (chartEnd == morphTag.length) {
+			growChart();
+		}
+		morphTag[chartEnd] = tag;
+		morphPhoneme[chartEnd] = phoneme;
+		morphNextPosition[chartEnd] = nextPosition;
+		morphNextTagType[chartEnd] = nextTagType;
+		morphState[chartEnd] = MORPHEME_STATE_INCOMPLETE;
+		connectionCount[chartEnd] = 0;
 		return chartEnd++;
 	}
 	
 	/**
-	 * It inserts the reverse of the given string to the SIMTI data structure.
-	 * @param str - string to insert to the SIMTI structure
+	 * Doubles the number of morpheme nodes the chart can have.
+	 */
+	private void growChart() {
+		int size = morphTag.length * 2;
+		morphTag = Arrays.copyOf(morphTag, size);
+		morphPhoneme = Arrays.copyOf(morphPhoneme, size);
+		morphNextPosition = Arrays.copyOf(morphNextPosition, size);
+		morphNextTagType = Arrays.copyOf(morphNextTagType, size);
+		morphState = Arrays.copyOf(morphState, size);
+		morphBegin = Arrays.copyOf(morphBegin, size);
+		morphEnd = Arrays.copyOf(morphEnd, size);
+		connectionBegin = Arrays.copyOf(connectionBegin, size);
+		connectionCount = Arrays.copyOf(connectionCount, size);
+	}
+	
+	/**
+	 * Adds the connection from the morpheme to the next morpheme. The connections of a morpheme
+	 * should be added one after another from connectionBegin of the morpheme.
+	 * @param chartIndex - the index of the morpheme
+	 * @param next - the index of the next morpheme connected
+	 */
+	private void addConnection(int chartIndex, int next) {
+		if (connectionEnd == connections.length) {
+			connections = Arrays.copyOf(connections, connectionEnd * 2);
+		}
+		connections[connectionEnd++] = next;
+		connectionCount[chartIndex]++;
+	}
+	
+	/**
+	 * It finds the segment position of the given string as a suffix of the eojeol, and adds the positions
+	 * for the front of the string which is not a suffix yet.
+	 * @param str - the buffer which has the string
+	 * @param begin - the start index of the string
+	 * @param end - the end index of the string (exclusive)
 	 * @return the index of the next morpheme
 	 */
-	public int altSegment(String str) {
+	public int altSegment(char[] str, int begin, int end) {
+		int first = 0;
 		int prev = 0;
 		int next = 0;
+		int to = 0;
 		int match;
-		int len;
-		int to;
-		
-		len = str.length();
-		
-		String rev = "";
-		for (int i = len - 1; i >= 0; i--) {
-			rev += str.charAt(i);
-		}
 		
-		char[] revStrArray = rev.toCharArray();
-		
-		match = simti.search(revStrArray);
-		to = simti.fetch(rev.substring(0, match).toCharArray());
-		
-		for (int i = 0; i < str.length(); i++) {
-			if (len <= match) {
+		// the longest suffix of the string which already has the positions, from the end of the eojeol
+		for (match = end; match > begin; match--) {
+			next = sp.findPosition(str[match - 1], to);
+			if (next == 0) {
 				break;
 			}
-			next = sp.addPosition(str.charAt(i));
+			to = next;
+		}
+		
+		for (int i = begin; i < match; i++) {
+			next = sp.addPosition(str[i]);
 			if (prev != 0) {
 				sp.setPositionLink(prev, next);
+			} else {
+				first = next;
 			}
-			
-			simti.insert(rev.substring(0, len).toCharArray(), next);
 			prev = next;
-			len--;
 		}
 		
 		if (prev != 0) {
 			sp.setPositionLink(prev, to);
+			return first;
 		}
 		
-		return simti.fetch(revStrArray);
+		return to;
+	}
+	
+	/**
+	 * Sets the work budget for each eojeol. When the analysis of an eojeol runs out of the budget, the whole eojeol
+	 * is analyzed as one unknown morpheme instead, and isBudgetExceeded() returns true for the eojeol.
+	 * The budget is off by default, and any limit may change the results of the eojeols which exceed it.
+	 * The time limit makes the results nondeterministic, since the same eojeol can run out of time or not
+	 * depending on the load of the machine, the garbage collection, and the JIT compilation.
+	 * @param maxMorphemes - the maximum number of morphemes in the chart, 0 for no limit
+	 * @param maxConnections - the maximum number of connections in the chart, 0 for no limit
+	 * @param maxResults - the maximum number of analysis results generated by getResult(), 0 for no limit
+	 * 		except the default maximum, and the results over it are dropped
+	 * @param maxNanos - the maximum time from init() to the end of analyze() in nanoseconds, 0 for no limit
+	 */
+	public void setWorkBudget(int maxMorphemes, int maxConnections, int maxResults, long maxNanos) {
+		budgetMorphemes = maxMorphemes;
+		budgetConnections = maxConnections;
+		budgetResults = (maxResults > 0) ? Math.min(maxResults, MAX_CANDIDATE_NUM) : 0;
+		budgetNanos = maxNanos;
+	}
+	
+	/**
+	 * Returns whether the analysis of the current eojeol ran out of the work budget.
+	 * @return true: the eojeol was analyzed as one unknown morpheme, or some of its results were dropped
+	 */
+	public boolean isBudgetExceeded() {
+		return budgetExceeded;
 	}
 	
 	/**
@@ -259,11 +436,46 @@ public class MorphemeChart {
 		
 		res = analyze(0, TagSet.TAG_TYPE_ALL);
 
-		if (res > 0) {
-			return res;
-		} else {
-			return analyzeUnknown();
+		if (res == 0 && !budgetExceeded) {
+			res = analyzeUnknown();
+		}
+		if (budgetExceeded) {
+			return analyzeFallback();
 		}
+		return res;
+	}
+	
+	/**
+	 * Checks whether the analysis of the eojeol ran out of the work budget.
+	 * @return true: the budget ran out, false: the analysis can go on
+	 */
+	private boolean checkBudget() {
+		if ((budgetMorphemes > 0 && chartEnd > budgetMorphemes)
+				|| (budgetConnections > 0 && connectionEnd > budgetConnections)
+				|| (deadline != 0 && (++budgetChecks & 15) == 0 && System.nanoTime() - deadline > 0)) {
+			budgetExceeded = true;
+		}
+		return budgetExceeded;
+	}
+	
+	/**
+	 * Replaces the results in the chart with the whole eojeol as one unknown morpheme,
+	 * which is for the eojeol whose analysis ran out of the work budget.
+	 * @return the number of analysis results
+	 */
+	private int analyzeFallback() {
+		int nc_idx = addMorpheme(tagSet.unkTag, TagSet.PHONEME_TYPE_ALL, 0, TagSet.TAG_TYPE_ALL);
+		morphBegin[nc_idx] = 0;
+		morphEnd[nc_idx] = eojeolLength;
+		morphState[nc_idx] = MORPHEME_STATE_SUCCESS;
+		connectionBegin[nc_idx] = connectionEnd;
+		addConnection(nc_idx, 0);
+		
+		connectionBegin[0] = connectionEnd;
+		connectionCount[0] = 0;
+		addConnection(0, nc_idx);
+		
+		return 1;
 	}
 	
 	/**
@@ -278,17 +490,19 @@ public class MorphemeChart {
 		int mp;
 		char c;
 		int nc_idx;
-		TNODE node;
-		LinkedList<INFO> infoList = null;
-		INFO info = null;
+		int end, info;
+		int m, node;
+		int keyCount = 0;
+		int begin;
+		MorphemeDic dic;
 		
-		int sidx = 1;
-		int uidx = 1;
-		int nidx = 1;
 		Position fromPos = null;
-		Position toPos = null;
-		Morpheme morph = chart[chartIndex]; 
-		from = morph.nextPosition;
+		
+		if (budgetExceeded || checkBudget()) {
+			return 0;
+		}
+		
+		from = morphNextPosition[chartIndex];
 		fromPos = sp.getPosition(from);
 		
 		switch(sp.getPosition(from).state) {
@@ -297,74 +511,45 @@ public class MorphemeChart {
 		
 		/* dictionary search */
 		case SegmentPosition.SP_STATE_N:
-			i = 0;
-			bufString = "";
-			
-			// searches all combinations of words segmented through the dictionaries
 			for (to = from; to != SegmentPosition.POSITION_START_KEY; to = sp.nextPosition(to)) {
-				toPos = sp.getPosition(to);
-				c = toPos.key;
-				
-				if (sidx != 0) {
-					sidx = systemDic.node_look(c, sidx);
-				}
-				if (uidx != 0) {
-					uidx = userDic.node_look(c, uidx);
-				}
-				if (nidx != 0) {
-					nidx = numDic.node_look(c, nidx);
+				c = sp.getPosition(to).key;
+				if (keyCount == segmentKeys.length) {
+					segmentKeys = Arrays.copyOf(segmentKeys, keyCount * 2);
+					segmentPath = Arrays.copyOf(segmentPath, keyCount * 2);
 				}
-				
-				toPos.sIndex = sidx;
-				toPos.uIndex = uidx;
-				toPos.nIndex = nidx;
-				
-				bufString += c;
-				segmentPath[i++] = to;
+				segmentKeys[keyCount] = c;
+				segmentPath[keyCount++] = to;
 			}
 			
-			nidx = 0;
+			// the positions of the eojeol are followed by the rest of it, so their morphemes share the eojeol in the surface buffer
+			if (from <= eojeolLength) {
+				begin = from - 1;
+			} else {
+				begin = addSurface(segmentKeys, 0, keyCount);
+			}
 			
+			// searches all combinations of words segmented through the dictionaries at once
+			dics.match(segmentKeys, keyCount);
+			
+			i = keyCount;
+			
+			// the longer words first, and the dictionaries in the order of priority for the same word
 			for ( ; i > 0; i--) {
 				to = segmentPath[i-1];
-				toPos = sp.getPosition(to);
-
-				// system dictionary
-				if (toPos.sIndex != 0) {
-					node = systemDic.get_node(toPos.sIndex);
-					if ((infoList = node.info_list) != null) {
-						for (j = 0; j < infoList.size(); j++) {
-							info = infoList.get(j);
-
-							nc_idx = addMorpheme(info.tag, info.phoneme, sp.nextPosition(to), 0);
-							chart[nc_idx].str = bufString.substring(0, i);
-							fromPos.morpheme[fromPos.morphCount++] = nc_idx;
-						}
-					}
-				}
 				
-				// user dictionary
-				if (toPos.uIndex != 0) {
-					node = userDic.get_node(toPos.uIndex);
-					if ((infoList = node.info_list) != null) {
-						for (j = 0; j < infoList.size(); j++) {
-							info = infoList.get(j);
-							nc_idx = addMorpheme(info.tag, info.phoneme, sp.nextPosition(to), 0);
-							chart[nc_idx].str = bufString.substring(0, i);
-							fromPos.morpheme[fromPos.morphCount++] = nc_idx;
-						}
+				for (m = dics.matchBegin(i); m < dics.matchEnd(i); m++) {
+					node = dics.matchNode(m);
+					if (node == 0) {
+						continue;
 					}
-				}
-				
-				// number dictionary
-				if (nidx == 0 && toPos.nIndex != 0) {
-					if (numDic.isNum(toPos.nIndex)) {
-						nc_idx = addMorpheme(tagSet.numTag, TagSet.PHONEME_TYPE_ALL, sp.nextPosition(to), 0);
-						chart[nc_idx].str = bufString.substring(0, i);
-						fromPos.morpheme[fromPos.morphCount++] = nc_idx;
-						nidx = toPos.nIndex;
-					} else {
-						nidx = 0;
+					dic = dics.getLayer(dics.matchLayer(m));
+					end = dic.info_end(node);
+					for (j = dic.info_begin(node); j < end; j++) {
+						info = dic.info_get(j);
+						nc_idx = addMorpheme(Trie.unpack_tag(info), Trie.unpack_phoneme(info), sp.nextPosition(to), 0);
+						morphBegin[nc_idx] = begin;
+						morphEnd[nc_idx] = begin + i;
+						fromPos.addMorpheme(nc_idx);
 					}
 				}
 			}
@@ -373,7 +558,7 @@ public class MorphemeChart {
 
 		/* chart expansion regarding various rules */
 		case SegmentPosition.SP_STATE_D:
-			exp.prule(from, morph.str, bufString, sp);
+			exp.prule(from, surface, morphBegin[chartIndex], morphEnd[chartIndex], segmentKeys, keyCount);
 			sp.getPosition(from).state = SegmentPosition.SP_STATE_R;
 			
 		/* recursive processing */
@@ -383,23 +568,23 @@ public class MorphemeChart {
 				mp = fromPos.morpheme[i];
 				
 				// It prevents a recursive call for '습니다', which needs to be improved.
-				if (tagSet.checkTagType(tagType, chart[mp].tag) == false) {
+				if (tagSet.checkTagType(tagType, morphTag[mp]) == false) {
 					continue;
 				}
 				
 				// It prevents some redundant processing
-				if (chart[mp].state == MORPHEME_STATE_INCOMPLETE) {
-					y = analyze(mp, chart[mp].nextTagType);
+				if (morphState[mp] == MORPHEME_STATE_INCOMPLETE) {
+					y = analyze(mp, morphNextTagType[mp]);
 					x += y;
 					
 					if (y != 0) {
-						chart[mp].state = MORPHEME_STATE_SUCCESS;
+						morphState[mp] = MORPHEME_STATE_SUCCESS;
 					} else {
-						chart[mp].state = MORPHEME_STATE_FAIL;
+						morphState[mp] = MORPHEME_STATE_FAIL;
 					}
 				}
 				else {
-					x += chart[mp].connectionCount;
+					x += connectionCount[mp];
 				}
 			}
 			
@@ -416,22 +601,32 @@ public class MorphemeChart {
 
 		/* connecton rule */
 		case SegmentPosition.SP_STATE_M:
+			// the connections of a morpheme are added at once, so they are kept together in the connection list
+			connectionBegin[chartIndex] = connectionEnd;
 			for (i = 0; i < fromPos.morphCount; i++) {
 				mp = fromPos.morpheme[i];
 				
-				if (chart[mp].state == MORPHEME_STATE_SUCCESS &&
+				if (morphState[mp] == MORPHEME_STATE_SUCCESS &&
 					connection.checkConnection(
 							tagSet,
-							morph.tag,
-							chart[mp].tag,
-							morph.str.length(),
-							chart[mp].str.length(),
-							morph.nextTagType)) {
-					morph.connection[morph.connectionCount++] = mp;
+							morphTag[chartIndex],
+							morphTag[mp],
+							morphEnd[chartIndex] - morphBegin[chartIndex],
+							morphEnd[mp] - morphBegin[mp],
+							morphNextTagType[chartIndex]) &&
+					(connectionNot == null || connectionNot.checkConnection(
+							morphTag[chartIndex],
+							morphTag[mp],
+							surface,
+							morphBegin[chartIndex],
+							morphEnd[chartIndex],
+							morphBegin[mp],
+							morphEnd[mp]))) {
+					addConnection(chartIndex, mp);
 				}
 			}
 		}
-		return morph.connectionCount;
+		return connectionCount[chartIndex];
 	}
 
 	/**
@@ -442,28 +637,29 @@ public class MorphemeChart {
 	private int analyzeUnknown() {
 		int i;
 		int nc_idx;
-		
-		bufString = "";
+		int len = 0;
 		
 		Position pos_1 = sp.getPosition(1);
 		
 		for (i = 1; i != 0; i = sp.nextPosition(i)) {
 			Position pos = sp.getPosition(i);
 
-			bufString += pos.key;
+			len++;
 			
 //			if (Code.isChoseong(pos.key)) {
 //				continue;
 //			}
 			
 			nc_idx = addMorpheme(tagSet.unkTag, TagSet.PHONEME_TYPE_ALL, sp.nextPosition(i), TagSet.TAG_TYPE_ALL);
-			chart[nc_idx].str = bufString;
+			// the positions from 1 are the eojeol at the front of the surface buffer
+			morphBegin[nc_idx] = 0;
+			morphEnd[nc_idx] = len;
 			
-			pos_1.morpheme[pos_1.morphCount++] = nc_idx;
+			pos_1.addMorpheme(nc_idx);
 			pos_1.state = SegmentPosition.SP_STATE_R;
 		}
 		
-		chart[0].connectionCount = 0;
+		connectionCount[0] = 0;
 		
 		return analyze(0, 0);
 	}
@@ -476,30 +672,222 @@ public class MorphemeChart {
 	 * @param phoneme - phoneme	
 	 * @param nextPosition - the index of the next morpheme
 	 * @param nextTagType - the type of the next morpheme tag
-	 * @param str - plain string
+	 * @param str - the buffer which has the plain string
+	 * @param begin - the start index of the plain string
+	 * @param end - the end index of the plain string (exclusive)
 	 * @return true: the morpheme is in the chart, false: not exist
 	 */
-	public boolean checkChart(int[] morpheme, int morphemeLen, int tag, int phoneme, int nextPosition, int nextTagType, String str) {
+	public boolean checkChart(int[] morpheme, int morphemeLen, int tag, int phoneme, int nextPosition, int nextTagType, char[] str, int begin, int end) {
 		for (int i = 0; i < morphemeLen; i++) {
-			Morpheme morph = chart[morpheme[i]];
-			if (morph.tag == tag &&
-					morph.phoneme == phoneme &&
-					morph.nextPosition == nextPosition &&
-					morph.nextTagType == nextTagType &&
-					morph.str.equals(str)) {
+			int m = morpheme[i];
+			if (morphTag[m] == tag &&
+					morphPhoneme[m] == phoneme &&
+					morphNextPosition[m] == nextPosition &&
+					morphNextTagType[m] == nextTagType &&
+					surfaceEquals(m, str, begin, end)) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
+	/**
+	 * Checks whether the plain string of the morpheme is the same with the specified string.
+	 * @param chartIndex - the index of the morpheme in the chart
+	 * @param str - the buffer which has the string to compare
+	 * @param begin - the start index of the string
+	 * @param end - the end index of the string (exclusive)
+	 * @return true: the strings are the same, false: otherwise
+	 */
+	private boolean surfaceEquals(int chartIndex, char[] str, int begin, int end) {
+		if (morphEnd[chartIndex] - morphBegin[chartIndex] != end - begin) {
+			return false;
+		}
+		for (int i = morphBegin[chartIndex], j = begin; j < end; i++, j++) {
+			if (surface[i] != str[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds the string to the surface buffer.
+	 * @param str - the buffer which has the string to add
+	 * @param begin - the start index of the string
+	 * @param end - the end index of the string (exclusive)
+	 * @return the index of the string in the surface buffer
+	 */
+	private int addSurface(char[] str, int begin, int end) {
+		int idx = surfaceLength;
+		int len = end - begin;
+		if (surfaceLength + len > surface.length) {
+			surface = Arrays.copyOf(surface, Math.max(surface.length * 2, surfaceLength + len));
+		}
+		System.arraycopy(str, begin, surface, surfaceLength, len);
+		surfaceLength += len;
+		return idx;
+	}
+	
+	/**
+	 * Sets the maximum number of analysis results generated by getResult(). The best results by the score of the
+	 * scorer are taken, and generated in the same order with all the results. If the number cuts the results, the
+	 * tagger may choose the other result than it does with all the results, since the scorer doesn't see the
+	 * eojeols around.
+	 * @param maxCandidates - the maximum number of results generated in the order of the score,
+	 * 		0 for all the results in the order of the chart
+	 */
+	public void setMaxCandidates(int maxCandidates) {
+		this.maxCandidates = Math.min(maxCandidates, MAX_CANDIDATE_NUM);
+	}
+	
+	/**
+	 * Sets the scorer of the analysis results, which ranks the results for setMaxCandidates(), and is set to the
+	 * lattices for the plug-ins which take the results one by one with BestResults.
+	 * @param scorer - the scorer, null for the fewest morphemes first
+	 */
+	public void setScorer(LatticeScorer scorer) {
+		this.scorer = scorer;
+	}
+	
+	/**
+	 * Sets the impossible connection rules of morphemes, which prune the connections while the chart is built.
+	 * @param connectionNot - the impossible connection rules, null for no rule
+	 */
+	public void setConnectionNot(ConnectionNot connectionNot) {
+		this.connectionNot = connectionNot;
+	}
+	
 	/**
 	 * Generates the morphological analysis result based on the morpheme chart where the analysis is performed.
 	 */
 	public void getResult() {
 		
 		printResultCnt = 0;
-		printChart(0);
+		if (maxCandidates > 0) {
+			// only the best results are expanded from the lattice, and they are added in the order of printChart()
+			// so the cap changes nothing if it doesn't cut the results
+			BestResults best = new BestResults(getLattice(null));
+			best.setDistinct(false);
+			ArrayList<Eojeol> eojeols = new ArrayList<Eojeol>();
+			final ArrayList<int[]> orders = new ArrayList<int[]>();
+			Eojeol eojeol = null;
+			while (eojeols.size() < maxCandidates && (eojeol = best.next()) != null) {
+				eojeols.add(eojeol);
+				orders.add(best.getLatticeOrder());
+			}
+			
+			Integer[] rank = new Integer[eojeols.size()];
+			for (int i = 0; i < rank.length; i++) {
+				rank[i] = i;
+			}
+			Arrays.sort(rank, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					int[] x = orders.get(a);
+					int[] y = orders.get(b);
+					for (int i = 0; i < x.length && i < y.length; i++) {
+						if (x[i] != y[i]) {
+							return x[i] - y[i];
+						}
+					}
+					return x.length - y.length;
+				}
+			});
+			for (int i = 0; i < rank.length; i++) {
+				resEojeols.add(eojeols.get(rank[i]));
+			}
+			printResultCnt = rank.length;
+		} else {
+			printChart(0);
+			if (budgetResults > 0 && printResultCnt >= budgetResults) {
+				budgetExceeded = true;
+			}
+		}
+	}
+	
+	/**
+	 * Generates the morphological analysis result as a lattice of morphemes, which has all the results of the chart
+	 * without expanding them to the eojeols. A morpheme in the chart has more than one node in the lattice only if
+	 * its plain string differs by the previous morphemes, e.g. with the post processing. The lattice has the scorer
+	 * of the chart for BestResults.
+	 * @param postProc - the post processor for each morpheme with the previous one, null for no post processing
+	 * @return the morpheme lattice
+	 */
+	public MorphemeLattice getLattice(PostProcessor postProc) {
+		MorphemeLattice lattice = new MorphemeLattice();
+		lattice.setScorer(scorer);
+		
+		if (chartLattice == null || chartLattice.length < chartEnd) {
+			chartLattice = new int[Math.max(chartEnd, INITIAL_CHART_SIZE)];
+		}
+		if (latticeMorpheme == null) {
+			latticeMorpheme = new int[INITIAL_CHART_SIZE];
+			latticeEngIndex = new int[INITIAL_CHART_SIZE];
+			latticeChiIndex = new int[INITIAL_CHART_SIZE];
+			latticeSame = new int[INITIAL_CHART_SIZE];
+		}
+		Arrays.fill(chartLattice, 0, chartEnd, 0);
+		latticeMorpheme[0] = 0;
+		latticeEngIndex[0] = 0;
+		latticeChiIndex[0] = 0;
+		
+		addLatticeNext(lattice, postProc, 0);
+		return lattice;
+	}
+	
+	/**
+	 * Adds the next nodes of the specified node of the lattice, following the connections of its morpheme in the chart.
+	 * The new nodes are added in the depth-first order, so the paths are in the same order with printChart().
+	 * The alternatives which the morpheme processors add later are expanded as MorphemeLattice.toEojeols() says.
+	 * @param lattice - the morpheme lattice
+	 * @param postProc - the post processor, null for no post processing
+	 * @param node - the node of the lattice
+	 */
+	private void addLatticeNext(MorphemeLattice lattice, PostProcessor postProc, int node) {
+		int chartIndex = latticeMorpheme[node];
+		String prevMorph = (node == 0 || postProc == null) ? "" : Code.toTripleString(lattice.getMorpheme(node));
+		
+		for (int i = 0; i < connectionCount[chartIndex]; i++) {
+			int next = connections[connectionBegin[chartIndex] + i];
+			if (next == 0) {
+				lattice.addNext(node, 0);
+				continue;
+			}
+			
+			engReplaceIndex = latticeEngIndex[node];
+			chiReplaceIndex = latticeChiIndex[node];
+			String morpheme = getMorphemeString(next);
+			String tag = tagSet.getTagName(morphTag[next]);
+			if (postProc != null) {
+				morpheme = postProc.processMorpheme(prevMorph, morpheme, tag);
+			}
+			
+			int n = chartLattice[next];
+			while (n != 0 && (latticeEngIndex[n] != engReplaceIndex || latticeChiIndex[n] != chiReplaceIndex
+					|| !lattice.getMorpheme(n).equals(morpheme))) {
+				n = latticeSame[n];
+			}
+			if (n != 0) {
+				lattice.addNext(node, n);
+				continue;
+			}
+			
+			n = lattice.addNode(morpheme, tag);
+			if (n == latticeMorpheme.length) {
+				latticeMorpheme = Arrays.copyOf(latticeMorpheme, n * 2);
+				latticeEngIndex = Arrays.copyOf(latticeEngIndex, n * 2);
+				latticeChiIndex = Arrays.copyOf(latticeChiIndex, n * 2);
+				latticeSame = Arrays.copyOf(latticeSame, n * 2);
+			}
+			latticeMorpheme[n] = next;
+			latticeEngIndex[n] = engReplaceIndex;
+			latticeChiIndex[n] = chiReplaceIndex;
+			latticeSame[n] = chartLattice[next];
+			chartLattice[next] = n;
+			
+			lattice.addNext(node, n);
+			addLatticeNext(lattice, postProc, n);
+		}
 	}
 
 	/**
@@ -507,63 +895,99 @@ public class MorphemeChart {
 	 * @param word - the plain string of an eojeol to analyze
 	 */
 	public void init(String word) {
-		simti.init();
+		deadline = (budgetNanos > 0) ? System.nanoTime() + budgetNanos : 0;
+		
+		// pins one snapshot of the user dictionaries for the whole eojeol
+		MorphemeDic[] userDics = publishedUserDics;
+		dics.clear();
+		dics.add(systemDic, false);
+		dics.add(documentDic, false);
+		for (int i = 0; i < userDics.length; i++) {
+			dics.add(userDics[i], false);
+		}
+		dics.add(numDic, true);
+		
+		sp = workspace.get();
 		word = preReplace(word);
-		sp.init(Code.toTripleString(word), simti);
+		String tripleWord = Code.toTripleString(word);
+		sp.init(tripleWord);
+		
+		eojeolLength = tripleWord.length();
+		if (eojeolLength > surface.length) {
+			surface = new char[eojeolLength * 2];
+		}
+		tripleWord.getChars(0, eojeolLength, surface, 0);
+		surfaceLength = eojeolLength;
 		
 		chartEnd = 0;
+		connectionEnd = 0;
+		budgetExceeded = false;
 		Position p = sp.getPosition(0);
-		p.morpheme[p.morphCount++] = chartEnd;
-		chart[chartEnd].tag = tagSet.iwgTag;
-		chart[chartEnd].phoneme = 0;
-		chart[chartEnd].nextPosition = 1;
-		chart[chartEnd].nextTagType = 0;
-		chart[chartEnd].state = MORPHEME_STATE_SUCCESS;
-		chart[chartEnd].connectionCount = 0;
-		chart[chartEnd].str = "";
+		p.addMorpheme(chartEnd);
+		morphTag[chartEnd] = tagSet.iwgTag;
+		morphPhoneme[chartEnd] = 0;
+		morphNextPosition[chartEnd] = 1;
+		morphNextTagType[chartEnd] = 0;
+		morphState[chartEnd] = MORPHEME_STATE_SUCCESS;
+		connectionBegin[chartEnd] = 0;
+		connectionCount[chartEnd] = 0;
+		morphBegin[chartEnd] = 0;
+		morphEnd[chartEnd] = 0;
 		chartEnd++;
 	}
 	
 	/**
 	 * It expands the morpheme chart to deal with the phoneme change phenomenon.
 	 * @param from - the index of the start segment position
-	 * @param front - the front part of the string
-	 * @param back - the next part of the string
+	 * @param str - the buffer which has the string, the front part and the next part of it
+	 * @param split - the end index of the front part, and the start index of the next part
+	 * @param len - the length of the string
 	 * @param ftag - the morpheme tag of the front part
 	 * @param btag - the morpheme tag of the next part
 	 * @param phoneme - phoneme
 	 */
-	public void phonemeChange(int from, String front, String back, int ftag, int btag, int phoneme) {
-		TNODE node = null;
-		int size = 0;
+	public void phonemeChange(int from, char[] str, int split, int len, int ftag, int btag, int phoneme) {
+		int node = Trie.START_NODE;
+		int begin = 0, end = 0;
 		boolean x, y;
 		int next;
 		int nc_idx;
+		int tag, infoPhoneme;
+		int surfaceBegin = -1;
 		
 		// searches the system dictionary for the front part
-		node = systemDic.fetch(front.toCharArray());
-		if (node != null && node.info_list != null) {
-			size = node.info_list.size();
+		for (int i = 0; i < split && node != 0; i++) {
+			node = systemDic.node_look(str[i], node);
+		}
+		if (split > 0 && node != 0) {
+			begin = systemDic.info_begin(node);
+			end = systemDic.info_end(node);
 		}
 		
 		Position pos = sp.getPosition(from);
 		
-		for (int i = 0; i < size; i++) {
-			INFO info = node.info_list.get(i);
+		for (int i = begin; i < end; i++) {
+			int info = systemDic.info_get(i);
+			tag = Trie.unpack_tag(info);
+			infoPhoneme = Trie.unpack_phoneme(info);
 
 			// comparison of the morpheme tag of the front part
-			x = tagSet.checkTagType(ftag, info.tag);
+			x = tagSet.checkTagType(ftag, tag);
 			
 			// comparison of the phoneme of the front part
-			y = tagSet.checkPhonemeType(phoneme, info.phoneme);
+			y = tagSet.checkPhonemeType(phoneme, infoPhoneme);
 			
 			if (x && y) {
-				next = altSegment(back);
+				next = altSegment(str, split, len);
 				
-				if (checkChart(pos.morpheme, pos.morphCount, info.tag, info.phoneme, next, btag, front) == false) {
-					nc_idx = addMorpheme(info.tag, info.phoneme, next, btag);
-					chart[nc_idx].str = front;
-					pos.morpheme[pos.morphCount++] = nc_idx;
+				if (checkChart(pos.morpheme, pos.morphCount, tag, infoPhoneme, next, btag, str, 0, split) == false) {
+					nc_idx = addMorpheme(tag, infoPhoneme, next, btag);
+					if (surfaceBegin == -1) {
+						surfaceBegin = addSurface(str, 0, split);
+					}
+					morphBegin[nc_idx] = surfaceBegin;
+					morphEnd[nc_idx] = surfaceBegin + split;
+					pos.addMorpheme(nc_idx);
 				} else {
 					System.err.println("phonemeChange: exit");
 					System.exit(0);
@@ -578,55 +1002,99 @@ public class MorphemeChart {
 	 */
 	private void printChart(int chartIndex) {
 		int i;
-		Morpheme morph = chart[chartIndex];
-		int engCnt = 0;
-		int chiCnt = 0;
+		int engIndex = 0;
+		int chiIndex = 0;
 
 		if (chartIndex == 0) {
-			for (i = 0; i < morph.connectionCount; i++) {
+			for (i = 0; i < connectionCount[chartIndex]; i++) {
 				resMorphemes.clear();
 				resTags.clear();
-				printChart(morph.connection[i]);
+				printChart(connections[connectionBegin[chartIndex] + i]);
 			}
 		} else {
-			String morphStr = Code.toString(morph.str.toCharArray());
-			int idx = 0;
-			engCnt = 0;
-			chiCnt = 0;
-			while (idx != -1) {
-				if ((idx = morphStr.indexOf(ENG_REPLACE)) != -1) {
-					engCnt++;
-					morphStr = morphStr.replaceFirst(ENG_REPLACE, engReplacementList.get(engReplaceIndex++));
-				} else if ((idx = morphStr.indexOf(CHI_REPLACE)) != -1) {
-					chiCnt++;
-					morphStr = morphStr.replaceFirst(CHI_REPLACE, chiReplacementList.get(chiReplaceIndex++));
-				}
-			}
+			engIndex = engReplaceIndex;
+			chiIndex = chiReplaceIndex;
 			
-			resMorphemes.add(morphStr);
-			resTags.add(tagSet.getTagName(morph.tag));
+			resMorphemes.add(getMorphemeString(chartIndex));
+			resTags.add(tagSet.getTagName(morphTag[chartIndex]));
 
-			for (i = 0; i < morph.connectionCount && printResultCnt < MAX_CANDIDATE_NUM; i++) {
-				if (morph.connection[i] == 0) {
+			for (i = 0; i < connectionCount[chartIndex] && printResultCnt < ((budgetResults > 0) ? budgetResults : MAX_CANDIDATE_NUM); i++) {
+				if (connections[connectionBegin[chartIndex] + i] == 0) {
 					String[] mArray = resMorphemes.toArray(new String[0]);
 					String[] tArray = resTags.toArray(new String[0]);
 					resEojeols.add(new Eojeol(mArray, tArray));
 					
 					printResultCnt++;
 				} else {
-					printChart(morph.connection[i]);
+					printChart(connections[connectionBegin[chartIndex] + i]);
 				}
 			}
 			
 			resMorphemes.remove(resMorphemes.size() - 1);
 			resTags.remove(resTags.size() - 1);
-			if (engCnt > 0) {
-				engReplaceIndex -= engCnt;
+			engReplaceIndex = engIndex;
+			chiReplaceIndex = chiIndex;
+		}
+	}
+	
+	/**
+	 * Returns the plain string of the morpheme, where the reserved words are replaced with the English and Chinese strings.
+	 * The replacements are taken from engReplaceIndex and chiReplaceIndex, which are moved to the next ones.
+	 * @param chartIndex - the index of the morpheme in the chart
+	 * @return the plain string of the morpheme
+	 */
+	private String getMorphemeString(int chartIndex) {
+		int begin = morphBegin[chartIndex];
+		int end = morphEnd[chartIndex];
+		
+		if (engSpanCount == 0 && chiSpanCount == 0) {
+			return Code.toString(surface, begin, end);
+		}
+		
+		// the reserved words are in ASCII, which is the same in the triple encoding
+		replaceBuf.setLength(0);
+		int from = begin;
+		for (int i = begin; i < end; i++) {
+			if (engReplaceIndex < engSpanCount && isReserved(ENG_REPLACE, i, end)) {
+				replaceBuf.append(Code.toString(surface, from, i));
+				replaceBuf.append(replaceSource, engSpans[engReplaceIndex * 2], engSpans[engReplaceIndex * 2 + 1]);
+				engReplaceIndex++;
+				i += ENG_REPLACE.length() - 1;
+			} else if (chiReplaceIndex < chiSpanCount && isReserved(CHI_REPLACE, i, end)) {
+				replaceBuf.append(Code.toString(surface, from, i));
+				replaceBuf.append(replaceSource, chiSpans[chiReplaceIndex * 2], chiSpans[chiReplaceIndex * 2 + 1]);
+				chiReplaceIndex++;
+				i += CHI_REPLACE.length() - 1;
+			} else {
+				continue;
 			}
-			if (chiCnt > 0) {
-				chiReplaceIndex -= chiCnt;
+			from = i + 1;
+		}
+		if (from == begin) {
+			return Code.toString(surface, begin, end);
+		}
+		replaceBuf.append(Code.toString(surface, from, end));
+		return replaceBuf.toString();
+	}
+	
+	/**
+	 * Checks whether the reserved word is at the specified position of the surface.
+	 * @param reserved - the reserved word
+	 * @param pos - the position in the surface
+	 * @param end - the end of the morpheme in the surface
+	 * @return true: the reserved word starts at the position, false: otherwise
+	 */
+	private boolean isReserved(String reserved, int pos, int end) {
+		int len = reserved.length();
+		if (pos + len > end) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (surface[pos + i] != reserved.charAt(i)) {
+				return false;
 			}
 		}
+		return true;
 	}
 	
 	/**
@@ -637,15 +1105,15 @@ public class MorphemeChart {
 		for (int i = 0; i < chartEnd; i++) {
 			System.err.println("chartID: " + i);
 			System.err.format("%s/%s.%s nextPosition=%c nextTagType=%s state=%d ",
-					Code.toString(chart[i].str.toCharArray()),
-					tagSet.getTagName(chart[i].tag),
-					tagSet.getIrregularName(chart[i].phoneme),
-					Code.toCompatibilityJamo(sp.getPosition(chart[i].nextPosition).key),
-					tagSet.getTagName(chart[i].nextTagType),
-					chart[i].state);
+					Code.toString(surface, morphBegin[i], morphEnd[i]),
+					tagSet.getTagName(morphTag[i]),
+					tagSet.getIrregularName(morphPhoneme[i]),
+					Code.toCompatibilityJamo(sp.getPosition(morphNextPosition[i]).key),
+					tagSet.getTagName(morphNextTagType[i]),
+					morphState[i]);
 			System.err.print("connection=");
-			for (int j = 0; j < chart[i].connectionCount; j++) {
-				 System.err.print(chart[i].connection[j] + ", ");
+			for (int j = 0; j < connectionCount[i]; j++) {
+				 System.err.print(connections[connectionBegin[i] + j] + ", ");
 			}
 			System.err.println();
 		}
@@ -657,13 +1125,14 @@ public class MorphemeChart {
 	 * @return the string in which English and Chinese characters were replace with the reserved words
 	 */
 	private String preReplace(String str) {
-		String result = "";
+		StringBuilder result = null;
 		boolean engFlag = false;
 		boolean chiFlag = false;
-		String buf = "";
+		int bufBegin = -1;
 		
-		engReplacementList.clear();
-		chiReplacementList.clear();
+		replaceSource = str;
+		engSpanCount = 0;
+		chiSpanCount = 0;
 		engReplaceIndex = 0;
 		chiReplaceIndex = 0;
 
@@ -672,54 +1141,69 @@ public class MorphemeChart {
 
 			if (((c >= 'a' && c <= 'z') || c >= 'A' && c <= 'Z')) {
 				/* English Alphabets */
-				if (engFlag) {
-					buf += c;
-				} else {
-					if (engFlag) {
-						engFlag = false;
-						engReplacementList.add(buf);
-						buf = "";
+				if (!engFlag) {
+					if (result == null) {
+						result = new StringBuilder(str.length() + ENG_REPLACE.length()).append(str, 0, i);
 					}
-					result += ENG_REPLACE;
-					buf += c;
+					result.append(ENG_REPLACE);
 					engFlag = true;
 				}
-
+				if (bufBegin == -1) {
+					bufBegin = i;
+				}
 			} else if (((c >= 0x2E80 && c <= 0x2EFF) || (c >= 0x3400 && c <= 0x4DBF)) || (c >= 0x4E00 && c < 0x9FBF) ||
 					(c >= 0xF900 && c <= 0xFAFF) && chiFlag) {
 				/* Chinese Characters */
-				if (chiFlag) {
-					buf += c;
-				} else {
-					if (chiFlag) {
-						chiFlag = false;
-						chiReplacementList.add(buf);
-						buf = "";
+				if (!chiFlag) {
+					if (result == null) {
+						result = new StringBuilder(str.length() + CHI_REPLACE.length()).append(str, 0, i);
 					}
-					result += CHI_REPLACE;
-					buf += c;
+					result.append(CHI_REPLACE);
 					chiFlag = true;
 				}
+				if (bufBegin == -1) {
+					bufBegin = i;
+				}
 			} else {
-				result += c;
+				if (result != null) {
+					result.append(c);
+				}
+				// the string of a run is given to the first list, and the other gets an empty string
 				if (engFlag) {
 					engFlag = false;
-					engReplacementList.add(buf);
-					buf = "";
+					engSpans = addSpan(engSpans, engSpanCount++, bufBegin, i);
+					bufBegin = -1;
 				}
 				if (chiFlag) {
 					chiFlag = false;
-					chiReplacementList.add(buf);
-					buf = "";
+					chiSpans = addSpan(chiSpans, chiSpanCount++, (bufBegin == -1) ? i : bufBegin, i);
+					bufBegin = -1;
 				}
 			}
 		}
 		if (engFlag) {
-			engReplacementList.add(buf);
+			engSpans = addSpan(engSpans, engSpanCount++, bufBegin, str.length());
 		}
 		if (chiFlag) {
-			chiReplacementList.add(buf);
+			chiSpans = addSpan(chiSpans, chiSpanCount++, bufBegin, str.length());
+		}
+		return (result == null) ? str : result.toString();
+	}
+	
+	/**
+	 * Adds the offsets of a replaced string to the spans.
+	 * @param spans - the begin and end offsets of the replaced strings
+	 * @param index - the index of the new span
+	 * @param begin - the begin offset of the string
+	 * @param end - the end offset of the string (exclusive)
+	 * @return the spans, which are new ones if they grew
+	 */
+	private static int[] addSpan(int[] spans, int index, int begin, int end) {
+		if (index * 2 + 2 > spans.length) {
+			spans = Arrays.copyOf(spans, spans.length * 2);
 		}
-		return result;
+		spans[index * 2] = begin;
+		spans[index * 2 + 1] = end;
+		return spans;
 	}
 }
@@ -0,0 +1,73 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+/**
+ * The morpheme dictionary searched by the morpheme chart. The dictionary is walked node by node
+ * starting from Trie.START_NODE, and the morpheme information is read from the node reached.
+ * 
+ * The morpheme information of a node is a range of positions [info_begin, info_end), and
+ * info_get() returns the tag and the phoneme packed in an int, which are unpacked by
+ * Trie.unpack_tag() and Trie.unpack_phoneme(). So the information is iterated without
+ * allocating any object:
+ * <pre>
+ * for (int pos = dic.info_begin(idx), end = dic.info_end(idx); pos < end; pos++) {
+ *     int info = dic.info_get(pos);
+ *     ... Trie.unpack_tag(info) ... Trie.unpack_phoneme(info) ...
+ * }
+ * </pre>
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public interface MorphemeDic {
+	/**
+	 * It checks the children of the node on the specified index whether a child has the key.
+	 * @param key - key to search
+	 * @param idx - the index of the parent node, Trie.START_NODE for the root
+	 * @return the index of the child node which has the key, 0: not found
+	 */
+	public int node_look(char key, int idx);
+
+	/**
+	 * Fetches the node of the specified word.
+	 * @param word - the word to fetch
+	 * @return the index of the node which has the morpheme information of the word, 0: not found
+	 */
+	public int node_fetch(char[] word);
+
+	/**
+	 * Returns the position of the first morpheme information on the node.
+	 * @param idx - the index of the node
+	 * @return the start position of the information
+	 */
+	public int info_begin(int idx);
+
+	/**
+	 * Returns the position after the last morpheme information on the node.
+	 * It is the same with info_begin() if no morpheme ends on the node.
+	 * @param idx - the index of the node
+	 * @return the end position of the information (exclusive)
+	 */
+	public int info_end(int idx);
+
+	/**
+	 * Returns the morpheme information on the specified position.
+	 * @param pos - the position between info_begin() and info_end() of a node
+	 * @return the tag and the phoneme packed by Trie.pack_info()
+	 */
+	public int info_get(int pos);
+}
@@ -17,12 +17,17 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import kr.ac.kaist.swrc.jhannanum.share.TagSet;
+
 /**
  * Number dictionary for recognizing number expressions using automata.
  * 
+ * It is also a morpheme dictionary whose states are the nodes, and the accepting states
+ * have the number tag as the morpheme information.
+ * 
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */ 
-public class NumberDic {
+public class NumberDic implements MorphemeDic {
 	/** number automata */
 	private byte[][] num_automata = {
 			/* ACC, +, -, ., ,, n, etc.     */
@@ -41,6 +46,24 @@ public class NumberDic {
 			{ 1, 0, 0, 0, 0,12, 0}  /* 12 */
 	};
 
+	/** the morpheme information of the numbers packed by Trie.pack_info() */
+	private int numInfo = 0;
+
+	/**
+	 * Constructor. The morpheme tag of the numbers is 0.
+	 */
+	public NumberDic() {
+		numInfo = Trie.pack_info(0, TagSet.PHONEME_TYPE_ALL);
+	}
+
+	/**
+	 * Constructor.
+	 * @param tagSet - the morpheme tag set which has the number tag
+	 */
+	public NumberDic(TagSet tagSet) {
+		numInfo = Trie.pack_info(tagSet.numTag, TagSet.PHONEME_TYPE_ALL);
+	}
+
 	/**
 	 * Returns whether the input was recognized as a number.
 	 * @param idx - current state to check
@@ -77,4 +100,36 @@ public class NumberDic {
 		}
 		return num_automata[nidx][inp];
 	}
+
+	@Override
+	public int node_look(char key, int idx) {
+		return node_look((int)key, idx);
+	}
+
+	@Override
+	public int node_fetch(char[] word) {
+		int idx = Trie.START_NODE;
+		for (int i = 0; i < word.length && idx != 0; i++) {
+			idx = node_look(word[i], idx);
+		}
+		if (idx == 0 || !isNum(idx)) {
+			return 0;
+		}
+		return idx;
+	}
+
+	@Override
+	public int info_begin(int idx) {
+		return 0;
+	}
+
+	@Override
+	public int info_end(int idx) {
+		return isNum(idx) ? 1 : 0;
+	}
+
+	@Override
+	public int info_get(int pos) {
+		return numInfo;
+	}
 }
@@ -94,27 +94,7 @@ public class PostProcessor {
 				String[] tags = eojeol.getTags();
 				
 				for (int j = 0; j < eojeol.length; j++) {
-					String tri = Code.toTripleString(morphemes[j]);
-					if (tags[j].startsWith("e")) {
-						int prevLen = prevMorph.length();
-						
-						if (tri.startsWith(A_)) {		/* 어 -> 아 */
-							if (prevLen >= 4 && prevMorph.charAt(prevLen-1) == EU.charAt(1) && !isXEU(prevMorph.charAt(prevLen-2)) && ((Code.isJungseong(prevMorph.charAt(prevLen-3)) && isPV(prevMorph.charAt(prevLen-3))) || (Code.isJongseong(prevMorph.charAt(prevLen-3)) && isPV(prevMorph.charAt(prevLen-4))))) {
-								morphemes[j] = Code.toString(AR.toCharArray());
-							} else if (prevLen >= 3 && prevMorph.charAt(prevLen-1) == DOB.charAt(2) && (prevMorph.substring(prevLen-3).equals(DOB) == false || prevMorph.substring(prevLen-3).equals(GOB) == false)) {
-								/* for 'ㅂ' irregular */
-							} else if (prevLen>=2 && prevMorph.substring(prevLen-2).equals(HA)) {
-							} else if (prevLen>=2 && ( (Code.isJungseong(prevMorph.charAt(prevLen-1)) && isPV(prevMorph.charAt(prevLen-1))) || (Code.isJongseong(prevMorph.charAt(prevLen-1)) && isPV(prevMorph.charAt(prevLen-2))) )) {	// final consonant or not
-								morphemes[j] = Code.toString(AR.toCharArray());
-							}
-						} else if (tri.startsWith(EU.substring(0, 2)) || tri.startsWith(SU.substring(0, 4)) || tri.startsWith(NU.substring(0, 4))) {
-							/* elision of '으', '스', '느' */
-							if (prevLen >= 2 && (Code.isJungseong(prevMorph.charAt(prevLen-1)) || prevMorph.charAt(prevLen-1) == 0x11AF)) {
-								morphemes[j] = Code.toString(tri.substring(2).toCharArray());
-							}
-						}
-					}
-					
+					morphemes[j] = processMorpheme(prevMorph, morphemes[j], tags[j]);
 					prevMorph = Code.toTripleString(morphemes[j]);
 				}
 			}
@@ -122,6 +102,39 @@ public class PostProcessor {
 
 		return sos;
 	}
+	
+	/**
+	 * It does post processing of a morpheme with the previous morpheme.
+	 * @param prevMorph - the triple character representation of the previous morpheme, "" for no previous morpheme
+	 * @param morpheme - the morpheme to process
+	 * @param tag - the morpheme tag
+	 * @return the morpheme with post processing
+	 */
+	public String processMorpheme(String prevMorph, String morpheme, String tag) {
+		if (!tag.startsWith("e")) {
+			return morpheme;
+		}
+		
+		String tri = Code.toTripleString(morpheme);
+		int prevLen = prevMorph.length();
+		
+		if (tri.startsWith(A_)) {		/* 어 -> 아 */
+			if (prevLen >= 4 && prevMorph.charAt(prevLen-1) == EU.charAt(1) && !isXEU(prevMorph.charAt(prevLen-2)) && ((Code.isJungseong(prevMorph.charAt(prevLen-3)) && isPV(prevMorph.charAt(prevLen-3))) || (Code.isJongseong(prevMorph.charAt(prevLen-3)) && isPV(prevMorph.charAt(prevLen-4))))) {
+				return Code.toString(AR.toCharArray());
+			} else if (prevLen >= 3 && prevMorph.charAt(prevLen-1) == DOB.charAt(2) && (prevMorph.substring(prevLen-3).equals(DOB) == false || prevMorph.substring(prevLen-3).equals(GOB) == false)) {
+				/* for 'ㅂ' irregular */
+			} else if (prevLen>=2 && prevMorph.substring(prevLen-2).equals(HA)) {
+			} else if (prevLen>=2 && ( (Code.isJungseong(prevMorph.charAt(prevLen-1)) && isPV(prevMorph.charAt(prevLen-1))) || (Code.isJongseong(prevMorph.charAt(prevLen-1)) && isPV(prevMorph.charAt(prevLen-2))) )) {	// final consonant or not
+				return Code.toString(AR.toCharArray());
+			}
+		} else if (tri.startsWith(EU.substring(0, 2)) || tri.startsWith(SU.substring(0, 4)) || tri.startsWith(NU.substring(0, 4))) {
+			/* elision of '으', '스', '느' */
+			if (prevLen >= 2 && (Code.isJungseong(prevMorph.charAt(prevLen-1)) || prevMorph.charAt(prevLen-1) == 0x11AF)) {
+				return Code.toString(tri.substring(2).toCharArray());
+			}
+		}
+		return morpheme;
+	}
 
 	/**
 	 * Checks whether the specified character is one of 'ㅏ', 'ㅑ', 'ㅗ'.
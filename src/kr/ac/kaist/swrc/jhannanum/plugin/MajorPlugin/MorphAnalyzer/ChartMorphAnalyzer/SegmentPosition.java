@@ -17,10 +17,18 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import java.util.Arrays;
+
 import kr.ac.kaist.swrc.jhannanum.share.Code;
 
 /**
  * This class is for segmentation of morphemes in a given eojeol.
+ * The positions and the lists of morphemes start small, and grow when an eojeol needs more.
+ * They are reused for the next eojeols.
+ *
+ * Each position stands for the suffix which starts with its key and follows its next positions to the
+ * end of the eojeol. The positions are indexed by the key and the next position, so the position of
+ * a suffix is found by walking the suffix from its end without making any string.
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class SegmentPosition {
@@ -38,27 +46,29 @@ public class SegmentPosition {
 		/** the index of next segment position */
 		int nextPosition;
 
-		/** the temporary index for system dictionary */
-		int sIndex;
-		
-		/** the temporary index for user dictionary */
-		int uIndex;
-		
-		/** the temporary index for number dictionary */
-		int nIndex;
-		
 		/** the number of morphemes possible at this position */
 		int morphCount;
 		
 		/** the list of morphemes possible at this position */
-		int[] morpheme = new int[MAX_MORPHEME_COUNT];
+		int[] morpheme = new int[INITIAL_MORPHEME_COUNT];
+		
+		/**
+		 * Adds a morpheme possible at this position.
+		 * @param chartIndex - the index of the morpheme in the chart
+		 */
+		void addMorpheme(int chartIndex) {
+			if (morphCount == morpheme.length) {
+				morpheme = Arrays.copyOf(morpheme, morphCount * 2);
+			}
+			morpheme[morphCount++] = chartIndex;
+		}
 	}
 	
-	/** the maximum number of segmentation */
-	final public static int MAX_SEGMENT = 1024;
+	/** the initial number of segment positions */
+	final public static int INITIAL_SEGMENT = 64;
 
-	/** the maximum number of morphemes possible */
-	final public static int MAX_MORPHEME_COUNT = 512;
+	/** the initial number of morphemes possible at a position */
+	final public static int INITIAL_MORPHEME_COUNT = 16;
 
 	/** the processing state - dictionary search */
 	final public static int SP_STATE_N = 0;
@@ -83,15 +93,26 @@ public class SegmentPosition {
 
 	/** the last index of the segment position */
 	private int positionEnd = 0;
+	
+	/** the positions indexed by the key and the next position, 0: the slot is empty */
+	private int[] suffixIndex = null;
+	
+	/** the slots of the suffix index used, so only they are cleared for the next eojeol */
+	private int[] suffixSlots = null;
+	
+	/** the number of positions in the suffix index */
+	private int suffixCount = 0;
 
 	/**
 	 * Constructor.
 	 */
 	public SegmentPosition() {
-		position = new Position[MAX_SEGMENT];
-		for (int i = 0; i < MAX_SEGMENT; i++) {
+		position = new Position[INITIAL_SEGMENT];
+		for (int i = 0; i < INITIAL_SEGMENT; i++) {
 			position[i] = new Position();
 		}
+		suffixIndex = new int[INITIAL_SEGMENT * 2];
+		suffixSlots = new int[INITIAL_SEGMENT];
 	}
 
 	/**
@@ -100,13 +121,16 @@ public class SegmentPosition {
 	 * @return the index of the segment position in the list
 	 */
 	public int addPosition(char key) {
+		if (positionEnd == position.length) {
+			position = Arrays.copyOf(position, positionEnd * 2);
+			for (int i = positionEnd; i < position.length; i++) {
+				position[i] = new Position();
+			}
+		}
 		position[positionEnd].key = key;
 		position[positionEnd].state = SP_STATE_N;
 		position[positionEnd].morphCount = 0;
 		position[positionEnd].nextPosition = 0;
-		position[positionEnd].sIndex = 0;
-		position[positionEnd].uIndex = 0;
-		position[positionEnd].nIndex = 0;
 
 		return positionEnd++;
 	}
@@ -123,29 +147,24 @@ public class SegmentPosition {
 	/**
 	 * Initializes the data structure for segment positions with given string.
 	 * @param str - the plain string to analyze
-	 * @param simti - SIMple Trie Index
 	 */
-	public void init(String str, Simti simti) {
+	public void init(String str) {
 		int prevIndex = 0;
 		int nextIndex = 0;
 
 		positionEnd = 0;
+		for (int i = 0; i < suffixCount; i++) {
+			suffixIndex[suffixSlots[i]] = 0;
+		}
+		suffixCount = 0;
 		prevIndex = addPosition(POSITION_START_KEY);
 		position[prevIndex].state = SP_STATE_M;
 
-		String rev = "";
-		for (int i = str.length() - 1; i >= 0; i--) {
-			rev += str.charAt(i);
-		}
-
 		for (int i = 0; i < str.length(); i++) {
 			char c = str.charAt(i);
 			nextIndex = addPosition(c);
 			setPositionLink(prevIndex, nextIndex);
 			prevIndex = nextIndex;
-
-			simti.insert(rev.substring(0, str.length() - i).toCharArray(),
-					nextIndex);
 		}
 
 		/* for marking the end of the eojeol */
@@ -174,13 +193,73 @@ public class SegmentPosition {
 	}
 
 	/**
-	 * It connects two segment positions.
+	 * It connects two segment positions, and indexes the previous position by its key and the next position.
+	 * Each position should be connected only once.
 	 * @param prevIndex - the index of the previous position
 	 * @param nextIndex - the index of the next position
 	 * @return the index of the previous position
 	 */
 	public int setPositionLink(int prevIndex, int nextIndex) {
 		position[prevIndex].nextPosition = nextIndex;
+		if (prevIndex != 0) {
+			if ((suffixCount + 1) * 2 > suffixIndex.length) {
+				int[] old = suffixIndex;
+				int[] oldSlots = suffixSlots;
+				suffixIndex = new int[old.length * 2];
+				suffixSlots = new int[old.length];
+				for (int i = 0; i < suffixCount; i++) {
+					suffixSlots[i] = indexPosition(old[oldSlots[i]]);
+				}
+			}
+			suffixSlots[suffixCount++] = indexPosition(prevIndex);
+		}
 		return prevIndex;
 	}
+	
+	/**
+	 * Finds the position which has the specified key and is connected to the specified position.
+	 * @param key - vowel or consonant of the segment position
+	 * @param nextIndex - the index of the next position, 0 for the end of the eojeol
+	 * @return the index of the position, 0 if there is no such position
+	 */
+	public int findPosition(char key, int nextIndex) {
+		int mask = suffixIndex.length - 1;
+		int slot = hash(key, nextIndex) & mask;
+		int index;
+		
+		while ((index = suffixIndex[slot]) != 0) {
+			if (position[index].key == key && position[index].nextPosition == nextIndex) {
+				return index;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Puts the position in the suffix index.
+	 * @param index - the index of the position
+	 * @return the slot where the position is put
+	 */
+	private int indexPosition(int index) {
+		int mask = suffixIndex.length - 1;
+		int slot = hash(position[index].key, position[index].nextPosition) & mask;
+		
+		while (suffixIndex[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		suffixIndex[slot] = index;
+		return slot;
+	}
+	
+	/**
+	 * Returns the hash code of the key and the next position for the suffix index.
+	 * @param key - vowel or consonant of the segment position
+	 * @param nextIndex - the index of the next position
+	 * @return the hash code
+	 */
+	private static int hash(char key, int nextIndex) {
+		int h = nextIndex * 0x9E3779B1 + key;
+		return h ^ (h >>> 16);
+	}
 }
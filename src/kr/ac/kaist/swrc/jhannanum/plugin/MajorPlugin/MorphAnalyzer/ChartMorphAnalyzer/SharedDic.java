@@ -0,0 +1,226 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.HmmPosTagger.ProbabilityDBM;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.HmmPosTagger.ZipProbabilityDBM;
+import kr.ac.kaist.swrc.jhannanum.share.TagSet;
+
+/**
+ * The read-only dictionaries of the chart-based morphological analyzer, which are loaded once
+ * for the process and shared by all the analyzer instances using the same files.
+ *
+ * The dictionaries are not modified after loading, and their look-ups keep no state in the
+ * objects, so the analyzers on different threads use them at the same time. The per-analyzer
+ * data such as the user dictionary and the morpheme chart are not shared.
+ *
+ * acquire() returns the dictionaries loaded already or loads them, and release() should be
+ * called when the analyzer shuts down. The dictionaries are dropped from the registry when no
+ * analyzer uses them any more. The scorer with the statistic data of the tagger is shared in the
+ * same way with acquireScorer() and releaseScorer().
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class SharedDic {
+	/** the type of the default morpheme dictionary - double-array trie */
+	final public static String DIC_SYSTEM_TYPE_DAT = "dat";
+
+	/** the type of the default morpheme dictionary - minimal acyclic automaton, which is smaller but a bit slower */
+	final public static String DIC_SYSTEM_TYPE_DAWG = "dawg";
+
+	/** the dictionaries loaded, with the files of them as the key */
+	private static HashMap<String, SharedDic> registry = new HashMap<String, SharedDic>();
+
+	/** the scorers loaded, with the files of the statistic data as the key */
+	private static HashMap<String, HmmScorer> scorers = new HashMap<String, HmmScorer>();
+
+	/** the number of analyzers using each scorer, with the same key */
+	private static HashMap<String, Integer> scorerRefCount = new HashMap<String, Integer>();
+
+	/** Morpheme tag set */
+	public final TagSet tagSet;
+
+	/** Connection rules between morphemes. */
+	public final Connection connection;
+
+	/** Impossible connection rules. */
+	public final ConnectionNot connectionNot;
+
+	/** Pre-analyzed dictionary. */
+	public final AnalyzedDic analyzedDic;
+
+	/** Default morpheme dictionary. */
+	public final MorphemeDic systemDic;
+
+	/** the key of the dictionaries in the registry */
+	private String key = null;
+
+	/** the number of analyzers using the dictionaries */
+	private int refCount = 0;
+
+	/**
+	 * Returns the dictionaries for the specified files. They are loaded if no analyzer uses them yet.
+	 * @param zipFile - the zip file which has the other files, null if they are plain files
+	 * @param fileTagSet - the file for the tag set
+	 * @param fileConnections - the file for the connection rules
+	 * @param fileConnectionsNot - the file for the impossible connection rules
+	 * @param fileDicAnalyzed - the file for the pre-analyzed dictionary
+	 * @param fileDicSystem - the file for the default morpheme dictionary
+	 * @param fileDicSystemImage - the compiled image of the default morpheme dictionary, which is not in the zip file, null if not used
+	 * @param dicSystemType - the type of the default morpheme dictionary, DIC_SYSTEM_TYPE_DAT or DIC_SYSTEM_TYPE_DAWG
+	 * @return the shared dictionaries
+	 * @throws IOException
+	 */
+	public static synchronized SharedDic acquire(String zipFile, String fileTagSet, String fileConnections,
+			String fileConnectionsNot, String fileDicAnalyzed, String fileDicSystem, String fileDicSystemImage,
+			String dicSystemType) throws IOException {
+		String key = zipFile + "\t" + fileTagSet + "\t" + fileConnections + "\t" + fileConnectionsNot + "\t"
+				+ fileDicAnalyzed + "\t" + fileDicSystem + "\t" + fileDicSystemImage + "\t" + dicSystemType;
+
+		SharedDic dic = registry.get(key);
+		if (dic == null) {
+			dic = new SharedDic(zipFile, fileTagSet, fileConnections, fileConnectionsNot, fileDicAnalyzed,
+					fileDicSystem, fileDicSystemImage, dicSystemType);
+			dic.key = key;
+			registry.put(key, dic);
+		}
+		dic.refCount++;
+		return dic;
+	}
+
+	/**
+	 * Releases the dictionaries acquired. They are removed from the registry when no analyzer uses them.
+	 * @param dic - the dictionaries to release
+	 */
+	public static synchronized void release(SharedDic dic) {
+		if (dic == null || dic.refCount == 0) {
+			return;
+		}
+		if (--dic.refCount == 0) {
+			registry.remove(dic.key);
+		}
+	}
+
+	/**
+	 * Returns the scorer with the statistic data of the tagger in the specified files. It is loaded if no analyzer uses it yet.
+	 * @param zipFile - the zip file which has the other files, null if they are plain files
+	 * @param filePwt - the file for the probability data of P(w|t)
+	 * @param filePtt - the file for the probability data of P(t|t_prev) and P(t)
+	 * @return the shared scorer
+	 * @throws IOException
+	 */
+	public static synchronized HmmScorer acquireScorer(String zipFile, String filePwt, String filePtt) throws IOException {
+		String key = zipFile + "\t" + filePwt + "\t" + filePtt;
+
+		HmmScorer scorer = scorers.get(key);
+		if (scorer == null) {
+			if (zipFile == null) {
+				scorer = new HmmScorer(new ProbabilityDBM(filePwt), new ProbabilityDBM(filePtt));
+			} else {
+				scorer = new HmmScorer(new ZipProbabilityDBM(zipFile, filePwt), new ZipProbabilityDBM(zipFile, filePtt));
+			}
+			scorers.put(key, scorer);
+			scorerRefCount.put(key, 0);
+		}
+		scorerRefCount.put(key, scorerRefCount.get(key) + 1);
+		return scorer;
+	}
+
+	/**
+	 * Releases the scorer acquired. It is removed from the registry when no analyzer uses it.
+	 * @param scorer - the scorer to release
+	 */
+	public static synchronized void releaseScorer(HmmScorer scorer) {
+		for (Map.Entry<String, HmmScorer> entry : scorers.entrySet()) {
+			if (entry.getValue() == scorer) {
+				String key = entry.getKey();
+				int count = scorerRefCount.get(key) - 1;
+				if (count == 0) {
+					scorers.remove(key);
+					scorerRefCount.remove(key);
+				} else {
+					scorerRefCount.put(key, count);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Constructor. It loads the dictionaries from the specified files.
+	 */
+	private SharedDic(String zipFile, String fileTagSet, String fileConnections, String fileConnectionsNot,
+			String fileDicAnalyzed, String fileDicSystem, String fileDicSystemImage, String dicSystemType) throws IOException {
+		tagSet = new TagSet();
+		connection = new Connection();
+		connectionNot = new ConnectionNot();
+		analyzedDic = new AnalyzedDic();
+
+		if (zipFile == null) {
+			tagSet.init(fileTagSet, TagSet.TAG_SET_KAIST);
+			connection.init(fileConnections, tagSet.getTagCount(), tagSet);
+			connectionNot.init(fileConnectionsNot, tagSet);
+			analyzedDic.readDic(fileDicAnalyzed);
+		} else {
+			tagSet.init(zipFile, fileTagSet, TagSet.TAG_SET_KAIST);
+			connection.init(zipFile, fileConnections, tagSet.getTagCount(), tagSet);
+			connectionNot.init(zipFile, fileConnectionsNot, tagSet);
+			analyzedDic.readDic(zipFile, fileDicAnalyzed);
+		}
+
+		if (DIC_SYSTEM_TYPE_DAWG.equals(dicSystemType)) {
+			// the automaton is built from the dictionary file, the image is for the double-array
+			Dawg dawg = new Dawg();
+			if (zipFile == null) {
+				dawg.read_dic(fileDicSystem, tagSet);
+			} else {
+				dawg.read_dic(zipFile, fileDicSystem, tagSet);
+			}
+			systemDic = dawg;
+			return;
+		} else if (!DIC_SYSTEM_TYPE_DAT.equals(dicSystemType)) {
+			throw new IOException("unknown dic_system_type: " + dicSystemType);
+		}
+
+		DoubleArrayTrie dic = null;
+		if (fileDicSystemImage != null && ((zipFile == null)
+				? DoubleArrayTrie.is_image_fresh(fileDicSystemImage, fileDicSystem)
+				: DoubleArrayTrie.is_image_fresh(fileDicSystemImage, zipFile, fileDicSystem))) {
+			try {
+				dic = new DoubleArrayTrie();
+				dic.read_image(fileDicSystemImage, tagSet);
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				dic = null;
+			}
+		}
+		if (dic == null) {
+			dic = new DoubleArrayTrie();
+			if (zipFile == null) {
+				dic.read_dic(fileDicSystem, tagSet);
+			} else {
+				dic.read_dic(zipFile, fileDicSystem, tagSet);
+			}
+		}
+		systemDic = dic;
+	}
+}
\ No newline at end of file
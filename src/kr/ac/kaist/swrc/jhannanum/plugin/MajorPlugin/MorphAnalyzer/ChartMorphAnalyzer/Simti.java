@@ -17,8 +17,11 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.ChartMorphAnalyzer;
 
+import java.util.Arrays;
+
 /**
  * SIMTI(SIMple Trie Index) library.
+ * The nodes start small, and more nodes are added when there is no free node to allocate.
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class Simti {
@@ -107,14 +110,14 @@ public class Simti {
 	}
 
 	/**
-	 * The maximum number of the ST_NF nodes.
+	 * The initial number of the ST_NF nodes.
 	 */
-	final public static int ST_NF_DEFAULT = 300000;
+	final public static int ST_NF_DEFAULT = 1024;
 	
 	/**
-	 * The maximum length of a word.
+	 * The initial length of a word for searching, which grows for the longer words.
 	 */
-	final public static int ST_MAX_WORD = 1024;
+	final public static int ST_MAX_WORD = 64;
 	
 	/**
 	 * The end index for search_idx[].
@@ -166,10 +169,13 @@ public class Simti {
 			prev_i = i;
 		}
 
-		// there is no free node
+		// there is no free node, so the new nodes are added
 		if (i == 0) {
-			System.err.format("alloc:NO FREE NODE\n");
-			return 0;
+			i = grow(size);
+			prev_i = 0;
+			for (int j = this.head.s_free.next; j != i; j = this.nf[j].free.next) {
+				prev_i = j;
+			}
 		}
 		
 		if (prev_i == 0) {		// the head node
@@ -194,6 +200,41 @@ public class Simti {
 		return i;
 	}
 	
+	/**
+	 * Adds the free nodes at the end of the node array.
+	 * @param size - the number of nodes needed at least
+	 * @return the index of the last free node list which has the nodes needed
+	 */
+	private int grow(int size) {
+		int oldSize = this.nf.length;
+		int newSize = Math.max(oldSize * 2, oldSize + size);
+		int last = 0;
+
+		this.nf = Arrays.copyOf(this.nf, newSize);
+		for (int i = oldSize; i < newSize; i++) {
+			this.nf[i] = new ST_NF();
+		}
+		this.head.n_size = newSize;
+		this.head.f_size += newSize - oldSize;
+
+		// the free node list is in the order of index, so the new nodes are the last
+		for (int i = this.head.s_free.next; i != 0; i = this.nf[i].free.next) {
+			last = i;
+		}
+		if (last != 0 && last + this.nf[last].free.size == oldSize) {
+			this.nf[last].free.size += newSize - oldSize;
+			return last;
+		}
+		this.nf[oldSize].free.size = newSize - oldSize;
+		this.nf[oldSize].free.next = 0;
+		if (last == 0) {
+			this.head.s_free.next = oldSize;
+		} else {
+			this.nf[last].free.next = oldSize;
+		}
+		return oldSize;
+	}
+
 	/**
 	 * It searches the word in the SIMTI structure, and returns the information for the word.
 	 * @param word - search word
@@ -396,8 +437,9 @@ public class Simti {
 	public void init() {
 		search_end = 0;
 
-		head.n_size = ST_NF_DEFAULT;
-		head.f_size = ST_NF_DEFAULT - 1;
+		// the nodes added for the previous words are kept
+		head.n_size = nf.length;
+		head.f_size = nf.length - 1;
 
 		head.s_node.K = 0;
 		head.s_node.CS = 0;
@@ -408,7 +450,7 @@ public class Simti {
 		head.s_free.next = 1; 
 
 		/* nf[0] is not used */
-		nf[1].free.size = ST_NF_DEFAULT - 1; 
+		nf[1].free.size = nf.length - 1; 
 		nf[1].free.next = 0; 
 	}
 
@@ -646,6 +688,11 @@ public class Simti {
 		int child;
 		byte cs;
 
+		if (word.length > this.search_word.length) {
+			this.search_word = Arrays.copyOf(this.search_word, word.length * 2);
+			this.search_idx = Arrays.copyOf(this.search_idx, word.length * 2);
+		}
+
 		for (i = 0, j = 0; j < word.length && i < this.search_end; i++) {
 			if (word[j] == this.search_word[i])
 				j++;
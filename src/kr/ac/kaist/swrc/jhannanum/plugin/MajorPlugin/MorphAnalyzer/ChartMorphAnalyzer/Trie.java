@@ -24,11 +24,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
 import kr.ac.kaist.swrc.jhannanum.share.Code;
 import kr.ac.kaist.swrc.jhannanum.share.TagSet;
 
@@ -36,7 +37,7 @@ import kr.ac.kaist.swrc.jhannanum.share.TagSet;
  * TRIE data structure for morpheme dictionaries.
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
-public class Trie {
+public class Trie implements MorphemeDic, UserDicLayer {
 	/**
 	 * This class is for managing free nodes in the trie structure.
 	 * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
@@ -75,8 +76,11 @@ public class Trie {
 		/** the index for the childern */
 		public int child_idx;
 		
-		/** the list of morpheme information */
-		public LinkedList<INFO> info_list = null;
+		/** the position of the morpheme information in info_buf */
+		public int info_idx;
+		
+		/** the number of morpheme information */
+		public int info_size;
 		
 		/** for managing free nodes */
 		public FREE	free = new FREE();
@@ -87,6 +91,15 @@ public class Trie {
 
 	/** the default buffer size for the user dictionary */
 	final public static int DEFAULT_TRIE_BUF_SIZE_USER = 106000;
+
+	/** the initial buffer size when the size is not given */
+	final public static int DEFAULT_TRIE_BUF_SIZE_INIT = 1024;
+
+	/** the expected number of nodes for an entry of the dictionary, which is used to size the buffer */
+	final public static int NODES_PER_ENTRY = 8;
+
+	/** the initial size of the buffer for morpheme information */
+	final public static int DEFAULT_INFO_BUF_SIZE_INIT = 256;
 	
 	/** the index of the free node */
 	final public static int FREE_NODE = 0;
@@ -111,16 +124,33 @@ public class Trie {
 
 	/** the head of node list */
 	public TNODE node_head = null;
+
+	/** the morpheme information of all nodes, the tag and the phoneme are packed by pack_info() */
+	public int[] info_buf = null;
+
+	/** the number of positions used in info_buf */
+	public int info_buf_end = 0;
 	
+	/**
+	 * Constructor. The buffer for trie nodes grows on demand.
+	 */
+	public Trie() {
+		this(DEFAULT_TRIE_BUF_SIZE_INIT);
+	}
+
 	/**
 	 * Constructor.
-	 * @param buf_size - the maximum number of trie nodes
+	 * @param buf_size - the initial number of trie nodes, the buffer grows when it is not enough
 	 */
 	public Trie(int buf_size) {
 		search_idx = new int[256];
 		search_key = new char[256];
 		search_end = 0;
 
+		if (buf_size < START_NODE + 2) {
+			buf_size = START_NODE + 2;
+		}
+
 		trie_buf = new TNODE[buf_size];
 		for (int i = 0; i < buf_size; i++) {
 			trie_buf[i] = new TNODE();
@@ -131,15 +161,93 @@ public class Trie {
 		
 		node_head.key = 0;
 		node_head.child_size = 0;
-		node_head.info_list = new LinkedList<INFO>();
+		node_head.info_size = 0;
 		node_head.child_idx = 0;
 
+		info_buf = new int[DEFAULT_INFO_BUF_SIZE_INIT];
+		info_buf_end = 0;
+
 		free_head.size = 0;
-		free_head.next_idx = 1;
+		free_head.next_idx = START_NODE + 1;
 
-		// the node number 0 is not used
-		trie_buf[1].free.size = buf_size - 1;
-		trie_buf[1].free.next_idx = FREE_NODE;
+		// the node number 0 is not used, and the node number 1 is reserved for START_NODE,
+		// which node_look() takes as the root
+		trie_buf[START_NODE + 1].free.size = buf_size - START_NODE - 1;
+		trie_buf[START_NODE + 1].free.next_idx = FREE_NODE;
+	}
+
+	/**
+	 * Extends the buffer for trie nodes to have the specified number of nodes at least.
+	 * The nodes added are appended to the free node list.
+	 * @param buf_size - the number of trie nodes required
+	 */
+	public void ensure_capacity(int buf_size) {
+		int old_size = trie_buf.length;
+		if (buf_size <= old_size) {
+			return;
+		}
+
+		TNODE[] new_buf = new TNODE[buf_size];
+		System.arraycopy(trie_buf, 0, new_buf, 0, old_size);
+		for (int i = old_size; i < buf_size; i++) {
+			new_buf[i] = new TNODE();
+		}
+		trie_buf = new_buf;
+
+		node_free(old_size, buf_size - old_size);
+	}
+
+	/**
+	 * Makes a copy of the trie structure, which can be modified without affecting this trie.
+	 * The morpheme information is compacted in the copy.
+	 * @return the copy of the trie
+	 */
+	public Trie copy() {
+		Trie trie = new Trie(trie_buf.length);
+		trie.info_buf = new int[Math.max(info_buf_end, DEFAULT_INFO_BUF_SIZE_INIT)];
+
+		for (int i = 0; i < trie_buf.length; i++) {
+			TNODE src = trie_buf[i];
+			TNODE dst = trie.trie_buf[i];
+			dst.key = src.key;
+			dst.child_size = src.child_size;
+			dst.child_idx = src.child_idx;
+			dst.info_size = src.info_size;
+			if (src.info_size > 0) {
+				dst.info_idx = trie.info_buf_end;
+				System.arraycopy(info_buf, src.info_idx, trie.info_buf, dst.info_idx, src.info_size);
+				trie.info_buf_end += src.info_size;
+			}
+			dst.free.size = src.free.size;
+			dst.free.next_idx = src.free.next_idx;
+		}
+		return trie;
+	}
+
+	/**
+	 * Makes the morpheme information from the tag in the dictionary format, e.g. 'ncn' or 'pvg.irrb'.
+	 * @param data - the morpheme tag with the irregular type optionally
+	 * @param tagSet - the morpheme tag set
+	 * @return the morpheme information, null if the tag is not in the tag set
+	 */
+	public INFO make_info(String data, TagSet tagSet) {
+		StringTokenizer tok = new StringTokenizer(data, ".");
+		if (!tok.hasMoreTokens()) {
+			return null;
+		}
+		
+		INFO info = new INFO();
+		info.tag = tagSet.getTagID(tok.nextToken());
+		if (info.tag == -1) {
+			return null;
+		}
+
+		if (tok.hasMoreTokens()) {
+			info.phoneme = (short)tagSet.getIrregularID(tok.nextToken());
+		} else {
+			info.phoneme = TagSet.PHONEME_TYPE_ALL;
+		}
+		return info;
 	}
 
 	/**
@@ -160,6 +268,62 @@ public class Trie {
 		}
 	}
 
+	@Override
+	public int node_fetch(char[] word) {
+		// it walks the nodes with node_look() not to touch the search cache, so it is reentrant
+		int idx = START_NODE;
+		for (int i = 0; i < word.length && idx != 0; i++) {
+			idx = node_look(word[i], idx);
+		}
+		if (idx == START_NODE || idx == 0 || trie_buf[idx].info_size == 0) {
+			return 0;
+		}
+		return idx;
+	}
+
+	@Override
+	public int info_begin(int idx) {
+		return trie_buf[idx].info_idx;
+	}
+
+	@Override
+	public int info_end(int idx) {
+		return trie_buf[idx].info_idx + trie_buf[idx].info_size;
+	}
+
+	@Override
+	public int info_get(int pos) {
+		return info_buf[pos];
+	}
+
+	/**
+	 * Packs the morpheme tag and the phoneme into an int.
+	 * @param tag - the morpheme tag
+	 * @param phoneme - the phoneme (irregular type)
+	 * @return the morpheme information packed
+	 */
+	public static int pack_info(int tag, int phoneme) {
+		return (tag << 16) | (phoneme & 0xFFFF);
+	}
+
+	/**
+	 * Returns the morpheme tag of the morpheme information packed.
+	 * @param info - the morpheme information packed by pack_info()
+	 * @return the morpheme tag
+	 */
+	public static int unpack_tag(int info) {
+		return info >>> 16;
+	}
+
+	/**
+	 * Returns the phoneme of the morpheme information packed.
+	 * @param info - the morpheme information packed by pack_info()
+	 * @return the phoneme (irregular type)
+	 */
+	public static int unpack_phoneme(int info) {
+		return (short)info;
+	}
+
 	/**
 	 * Gets the trie node on the specified index
 	 * @param idx - index on the trie structure
@@ -193,8 +357,9 @@ public class Trie {
 		}
 
 		if (idx == 0) {
-			System.err.println("node alloc: no space");
-			return 0;
+			// no space - grows the buffer geometrically, and searches again
+			ensure_capacity(Math.max(trie_buf.length * 2, trie_buf.length + size));
+			return node_alloc(size);
 		}
 
 		if (pidx == FREE_NODE) {
@@ -287,6 +452,7 @@ public class Trie {
 	 * @param idx - the index of the parent node
 	 * @return the index of the child node which has the key, 0: not found
 	 */
+	@Override
 	public int node_look(char key, int idx) {
 		TNODE parent;
 
@@ -343,10 +509,8 @@ public class Trie {
 			pw.print("\t");
 		}
 		pw.print(idx + ":" + Code.toCompatibilityJamo(trie_buf[idx].key) + " ");
-		if (trie_buf[idx].info_list != null) {
-			for (int k = 0; k < trie_buf[idx].info_list.size(); k++) {
-				pw.print("t:" + tagSet.getTagName(trie_buf[idx].info_list.get(k).tag) + " ");
-			}
+		for (int k = info_begin(idx); k < info_end(idx); k++) {
+			pw.print("t:" + tagSet.getTagName(unpack_tag(info_buf[k])) + " ");
 		}
 		pw.println();
 		for (int i = 0; i < trie_buf[idx].child_size; i++) {
@@ -391,11 +555,18 @@ public class Trie {
 			info_list[i] = new INFO();
 		}
 
+		// the buffer is sized from the number of entries
+		ArrayList<String> lines = new ArrayList<String>();
 		while((str = buf.readLine()) != null){
-			str.trim();
-			if(str.equals("")){
-				continue;
+			if(!str.equals("")){
+				lines.add(str);
 			}
+		}
+		buf.close();
+		ensure_capacity(lines.size() * NODES_PER_ENTRY + START_NODE + 1);
+
+		for (int l = 0; l < lines.size(); l++) {
+			str = lines.get(l);
 
 			StringTokenizer tok	= new StringTokenizer(str, "\t ");
 			String word = tok.nextToken();
@@ -430,7 +601,6 @@ public class Trie {
 				store(word3, info_list[i]);
 			}
 		}
-		buf.close();
 	}
 	
 	/**
@@ -502,7 +672,7 @@ public class Trie {
 			}
 		}
 		
-		if (trie_buf[nidx].info_list == null || trie_buf[nidx].info_list.size() == 0) {
+		if (trie_buf[nidx].info_size == 0) {
 			return 0;
 		} else {
 			return search_end;
@@ -547,6 +717,7 @@ public class Trie {
 				trie_buf[new_index].key = c;
 				trie_buf[new_index].child_idx = 0;
 				trie_buf[new_index].child_size = 0;
+				trie_buf[new_index].info_size = 0;
 				parent.child_size = 1;
 				parent.child_idx = new_index;
 				search_idx[search_end] = new_index;
@@ -570,6 +741,7 @@ public class Trie {
 				trie_buf[new_index + i].key = c;
 				trie_buf[new_index + i].child_idx = 0;
 				trie_buf[new_index + i].child_size = 0;
+				trie_buf[new_index + i].info_size = 0;
 				search_idx[search_end]	= new_index + i;
 				search_key[search_end]	= c;
 				search_end++;
@@ -589,16 +761,98 @@ public class Trie {
 			}
 		}
 
-		// inserts the information to the word
-		if(parent.info_list == null) {
-			parent.info_list = new LinkedList<INFO>();
+		// inserts the information to the word, the information of the node is moved
+		// to the end of info_buf unless it is already there
+		if (parent.info_size == 0 || parent.info_idx + parent.info_size != info_buf_end) {
+			ensure_info_capacity(info_buf_end + parent.info_size + 1);
+			System.arraycopy(info_buf, parent.info_idx, info_buf, info_buf_end, parent.info_size);
+			parent.info_idx = info_buf_end;
+			info_buf_end += parent.info_size;
+		} else {
+			ensure_info_capacity(info_buf_end + 1);
 		}
+		info_buf[info_buf_end++] = pack_info(inode.tag, inode.phoneme);
+		parent.info_size++;
 		
-		INFO in = new INFO();
-		in.phoneme = inode.phoneme;
-		in.tag = inode.tag;
+		return 0;
+	}
+
+	/**
+	 * Extends the buffer for morpheme information to have the specified size at least.
+	 * @param size - the number of positions required
+	 */
+	private void ensure_info_capacity(int size) {
+		if (size <= info_buf.length) {
+			return;
+		}
+		int[] new_buf = new int[Math.max(size, info_buf.length * 2)];
+		System.arraycopy(info_buf, 0, new_buf, 0, info_buf_end);
+		info_buf = new_buf;
+	}
+
+	/**
+	 * It removes the information of the specified word from the trie structure.
+	 * The nodes which have neither information nor children any more are freed.
+	 * @param word - the word to remove
+	 * @param inode - the information of the word to remove
+	 * @return 0: done, -1: the word with the information is not in the structure
+	 */
+	public int remove(char[] word, INFO inode) {
+		int len = search(word);
+		if (len != word.length || len == 0) {
+			return -1;
+		}
+
+		// removes the information from the node of the word
+		TNODE node = trie_buf[search_idx[len - 1]];
+		int info = pack_info(inode.tag, inode.phoneme);
+		boolean removed = false;
+		for (int k = node.info_idx; k < node.info_idx + node.info_size; k++) {
+			if (info_buf[k] == info) {
+				System.arraycopy(info_buf, k + 1, info_buf, k, node.info_idx + node.info_size - k - 1);
+				node.info_size--;
+				removed = true;
+				break;
+			}
+		}
+		if (!removed) {
+			return -1;
+		}
+
+		// frees the nodes from the end of the word while they are not used
+		for (int d = len - 1; d >= 0; d--) {
+			int idx = search_idx[d];
+			node = trie_buf[idx];
+			if (node.info_size > 0 || node.child_size > 0) {
+				break;
+			}
+
+			TNODE parent = (d == 0) ? node_head : trie_buf[search_idx[d - 1]];
+			int child_index = parent.child_idx;
+			short cs = parent.child_size;
 
-		parent.info_list.add(in);
+			if (cs == 1) {
+				parent.child_size = 0;
+				parent.child_idx = 0;
+			} else {
+				// allocates (cs - 1) nodes, and moves the other children
+				int new_index = node_alloc(cs - 1);
+				for (int i = 0, j = 0; i < cs; i++) {
+					if (child_index + i != idx) {
+						TNODE tmp = trie_buf[new_index + j];
+						trie_buf[new_index + j] = trie_buf[child_index + i];
+						trie_buf[child_index + i] = tmp;
+						j++;
+					}
+				}
+				parent.child_idx = new_index;
+				parent.child_size = (short)(cs - 1);
+			}
+			node_free(child_index, cs);
+		}
+
+		// the indices in the search cache are not valid any more
+		search_end = 0;
 		
 		return 0;
 	}
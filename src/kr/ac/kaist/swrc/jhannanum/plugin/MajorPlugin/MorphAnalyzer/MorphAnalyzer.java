@@ -41,4 +41,29 @@ public interface MorphAnalyzer extends Plugin {
 	abstract public SetOfSentences morphAnalyze(PlainSentence ps);
 	
 	abstract public void loadUserDic(String Path) throws IOException;
+	
+	/**
+	 * Adds a morpheme to the user dictionary without reloading the whole dictionary.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: added, false: the tag is not valid
+	 */
+	abstract public boolean addEntry(String word, String tag);
+	
+	/**
+	 * Removes a morpheme from the user dictionary without reloading the whole dictionary.
+	 * @param word - the morpheme
+	 * @param tag - the morpheme tag, which can have the irregular type, e.g. 'pvg.irrb'
+	 * @return true: removed, false: the morpheme with the tag is not in the user dictionary
+	 */
+	abstract public boolean removeEntry(String word, String tag);
+	
+	/**
+	 * Loads a user dictionary as a layer, which is given to the documents with PlainSentence.setUserDicLayer().
+	 * The layer is small and independent of the analyzer, so one layer can be made for each user.
+	 * @param path - the file path of the user dictionary
+	 * @return the user dictionary layer
+	 * @throws IOException
+	 */
+	abstract public UserDicLayer loadUserDicLayer(String path) throws IOException;
 }
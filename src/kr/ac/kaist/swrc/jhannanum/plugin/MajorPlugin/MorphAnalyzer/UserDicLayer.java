@@ -0,0 +1,32 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer;
+
+/**
+ * The user dictionary layer, which is made by MorphAnalyzer.loadUserDicLayer() and carried by
+ * the sentences of the documents to analyze. The morphological analyzer searches the layer of a sentence with
+ * its own dictionaries, so many users can have their own words on one work flow without
+ * loading the whole dictionaries for each of them.
+ * 
+ * The layer is not modified after it is made, so it can be given to more than one document
+ * at the same time, e.g. all the documents of a user session.
+ * 
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public interface UserDicLayer {
+}
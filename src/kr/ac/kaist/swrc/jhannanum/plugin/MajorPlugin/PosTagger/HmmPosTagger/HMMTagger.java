@@ -18,9 +18,11 @@ along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
 package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.HmmPosTagger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.comm.MorphemeLattice;
 import kr.ac.kaist.swrc.jhannanum.comm.Sentence;
 import kr.ac.kaist.swrc.jhannanum.comm.SetOfSentences;
 import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.PosTagger;
@@ -33,6 +35,9 @@ import kr.ac.kaist.swrc.jhannanum.share.JSONReader;
  * Hidden Markov Model regarding the features of Korean Eojeol to choose the most promising morphological
  * analysis results of each eojeol for entire sentence.
  * 
+ * When an eojeol has the morpheme lattice instead of the list of analysis results, viterbi runs over
+ * the lattice first, and only the best analysis for each eojeol tag is added to the model.
+ * 
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class HMMTagger implements PosTagger {
@@ -60,6 +65,36 @@ public class HMMTagger implements PosTagger {
 		private int sibling;
 	}
 	
+	/**
+	 * State of viterbi over the morpheme lattice of an eojeol. It is the best partial path to a node of the lattice
+	 * for the first tags of the path, since the eojeol tag depends on the first four morpheme tags and the last one.
+	 */
+	private class LNode {
+		/** the node of the lattice, 0 for the start or the end of the eojeol */
+		private int node;
+		
+		/** the first morpheme tags of the path, up to four */
+		private String[] prefix;
+		
+		/** the number of edges in the path */
+		private int length;
+		
+		/** the accumulated probability from the start of the eojeol */
+		private double prob;
+		
+		/** back pointer for viterbi algorithm, -1 for the start */
+		private int backptr;
+		
+		/** the index of the edge from the node of the back pointer */
+		private int edge;
+		
+		/** eojeol tag, only for the complete path */
+		private String wp_tag;
+		
+		/** the index for the next state of the same node */
+		private int sibling;
+	}
+	
 	/**
 	 * Header of an eojeol.
 	 * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
@@ -92,6 +127,39 @@ public class HMMTagger implements PosTagger {
 	
 	/** for the probability P(T|T) for eojeols */
 	private ProbabilityDBM ptt_wp_tf = null;
+	
+	/** the buffer for making the keys of the probability data */
+	private StringBuilder key_buf = new StringBuilder();
+
+	/** the states of viterbi over the morpheme lattice */
+	private LNode[] ln = null;
+	
+	/** the last index of the states */
+	private int ln_end = 0;
+	
+	/** the first state of each node of the lattice, -1: no state, -2: the node is not visited */
+	private int[] ln_head = new int[64];
+	
+	/** the nodes of the lattice in the topological order */
+	private int[] ln_order = new int[64];
+	
+	/** the number of nodes in ln_order */
+	private int ln_order_end = 0;
+	
+	/** the probability P(w|t) of each node of the lattice */
+	private double[] ln_lexicon = new double[64];
+	
+	/** the probability P(t) of each node of the lattice */
+	private double[] ln_unigram = new double[64];
+	
+	/** whether each node of the lattice reaches the end of the eojeol */
+	private boolean[] ln_complete = new boolean[64];
+	
+	/** the buffers for the edges of two paths to compare */
+	private int[] path_a = new int[16], path_b = new int[16];
+	
+	/** no morpheme tag */
+	final static private String[] NO_PREFIX = new String[0];
 
 	/** the statistic file for the probability P(T|W) for morphemes */
 	private String PWT_POS_TDBM_FILE;
@@ -119,6 +187,8 @@ public class HMMTagger implements PosTagger {
 		int v = 0, prev_v = 0, w = 0;
 		ArrayList<String> plainEojeolArray = sos.getPlainEojeolArray();
 		ArrayList<Eojeol[]> eojeolSetArray = sos.getEojeolSetArray();
+		ArrayList<MorphemeLattice> latticeArray = sos.getLatticeArray();
+		int eojeolIndex = 0;
 		
 		// initialization
 		reset();
@@ -133,6 +203,13 @@ public class HMMTagger implements PosTagger {
 			}
 			w = new_wp(plainEojeol);
 			
+			MorphemeLattice lattice = (latticeArray == null) ? null : latticeArray.get(eojeolIndex);
+			eojeolIndex++;
+			if (lattice != null) {
+				new_lattice_mnodes(w, lattice, eojeolIndex == eojeolSetArray.size());
+				continue;
+			}
+			
 			for (int i = 0; i < eojeolSet.length; i++) {
 				String now_tag;
 				double probability;
@@ -169,6 +246,12 @@ public class HMMTagger implements PosTagger {
 		}
 		mn_end = 1;
 
+		ln = new LNode[1000];
+		for (int i = 0; i < ln.length; i++) {
+			ln[i] = new LNode();
+		}
+		ln_end = 0;
+
 		JSONReader json = new JSONReader(baseDir + "/" + configFile);
 		PWT_POS_TDBM_FILE = baseDir + "/" + json.getValue("pwt.pos");
 		PTT_POS_TDBM_FILE = baseDir + "/" + json.getValue("ptt.pos");
@@ -184,6 +267,20 @@ public class HMMTagger implements PosTagger {
 
 	}
 
+	/**
+	 * Makes the key of the probability data in the key buffer, e.g. 'ncn-jxc' or '학교/ncn'.
+	 * The key is valid until the next call, since the buffer is reused.
+	 * @param first - the first part of the key
+	 * @param sep - the separator
+	 * @param second - the second part of the key
+	 * @return the key made
+	 */
+	private CharSequence make_key(String first, char sep, String second) {
+		key_buf.setLength(0);
+		key_buf.append(first).append(sep).append(second);
+		return key_buf;
+	}
+
 	/**
 	 * Computes P(T_i, W_i) of the specified eojeol.
 	 * @param eojeol - the eojeol to compute the probability
@@ -194,13 +291,13 @@ public class HMMTagger implements PosTagger {
 		double current = 0.0, tbigram, tunigram, lexicon;
 
 		String tag;
-		String bitag;
+		CharSequence bitag;
 		String oldtag;
 
 		tag = eojeol.getTag(0);
 
 		/* the probability of P(t1|t0) */
-		bitag = "bnk-" + tag;
+		bitag = make_key("bnk", '-', tag);
 
 		double[] prob = null;
 
@@ -222,7 +319,7 @@ public class HMMTagger implements PosTagger {
 		}
 
 		/* the probability of P(w|t) */
-		if ((prob = pwt_pos_tf.get(eojeol.getMorpheme(0) + "/" + tag)) != null) {
+		if ((prob = pwt_pos_tf.get(make_key(eojeol.getMorpheme(0), '/', tag))) != null) {
 			/* current *= P(w|t1) */
 			lexicon = prob[0];
 		} else {
@@ -256,7 +353,7 @@ public class HMMTagger implements PosTagger {
 			tag = eojeol.getTag(i);
 
 			/* P(t_i|t_i-1) */
-			bitag = oldtag + "-" + tag;
+			bitag = make_key(oldtag, '-', tag);
 
 			if ((prob = ptt_pos_tf.get(bitag)) != null) {
 				tbigram = prob[0];
@@ -265,7 +362,7 @@ public class HMMTagger implements PosTagger {
 			}
 
 			/* P(w|t) */
-			if ((prob = pwt_pos_tf.get(eojeol.getMorpheme(i) + "/" + tag)) != null) {
+			if ((prob = pwt_pos_tf.get(make_key(eojeol.getMorpheme(i), '/', tag))) != null) {
 				/* current *= P(w|t) */
 				lexicon = prob[0];
 			} else {
@@ -289,7 +386,7 @@ public class HMMTagger implements PosTagger {
 		}
 
 		/* the blank at the end of eojeol */
-		bitag = tag + "-bnk";
+		bitag = make_key(tag, '-', "bnk");
 
 		/* P(bnk|t_last) */
 		if ((prob = ptt_pos_tf.get(bitag)) != null) {
@@ -313,6 +410,346 @@ public class HMMTagger implements PosTagger {
 		return current;
 	}
 
+	/**
+	 * Returns the probability of the specified key.
+	 * @param dbm - the probability data
+	 * @param key - the key
+	 * @return the probability, PCONSTANT if the key is not in the data
+	 */
+	private double get_prob(ProbabilityDBM dbm, CharSequence key) {
+		double[] prob = dbm.get(key);
+		return (prob == null) ? PCONSTANT : prob[0];
+	}
+
+	/**
+	 * Adds the nodes for the markov model from the morpheme lattice of an eojeol. It runs viterbi over the lattice
+	 * with P(T_i, W_i) computed in the same way as compute_wt(), and adds only the best analysis for each eojeol tag,
+	 * since viterbi over the eojeols can't choose the other analyses of the same eojeol tag. The ties are broken
+	 * in the order of the paths in the lattice, and the nodes are added in that order like the list of eojeols.
+	 * @param w - the header of the eojeol
+	 * @param lattice - the morpheme lattice of the eojeol
+	 * @param last - true: the eojeol is the last one of the sentence
+	 */
+	private void new_lattice_mnodes(int w, MorphemeLattice lattice, boolean last) {
+		int nodeCount = lattice.getNodeCount();
+		if (ln_head.length < nodeCount) {
+			ln_head = new int[nodeCount * 2];
+			ln_order = new int[nodeCount * 2];
+			ln_lexicon = new double[nodeCount * 2];
+			ln_unigram = new double[nodeCount * 2];
+			ln_complete = new boolean[nodeCount * 2];
+		}
+		Arrays.fill(ln_head, 0, nodeCount, -2);
+		ln_order_end = 0;
+		sort_lattice(lattice, 0);
+		
+		double unigramBnk = get_prob(ptt_pos_tf, "bnk");
+		int finals = -1;
+		
+		ln_end = 0;
+		ln_head[0] = new_lnode(0, NO_PREFIX, 0, 0.0, -1, -1);
+		
+		// the nodes are visited in the topological order, so all the paths to a node are done before it is extended
+		for (int k = ln_order_end - 1; k >= 0; k--) {
+			int u = ln_order[k];
+			String prevTag = (u == 0) ? "bnk" : lattice.getTag(u);
+			
+			for (int i = 0; i < lattice.getNextCount(u); i++) {
+				int v = lattice.getNext(u, i);
+				
+				if (v == 0) {
+					/* the blank at the end of eojeol */
+					double tbigram = get_prob(ptt_pos_tf, make_key(prevTag, '-', "bnk"));
+					for (int s = ln_head[u]; s >= 0; s = ln[s].sibling) {
+						double P = ln[s].prob + (0 + tbigram - unigramBnk);
+						String wp_tag = get_lattice_phrase_tag(s, prevTag);
+						
+						int f = finals;
+						while (f >= 0 && !ln[f].wp_tag.equals(wp_tag)) {
+							f = ln[f].sibling;
+						}
+						if (f < 0) {
+							f = new_lnode(0, NO_PREFIX, ln[s].length + 1, P, s, i);
+							ln[f].wp_tag = wp_tag;
+							ln[f].sibling = finals;
+							finals = f;
+						} else if (P > ln[f].prob || (P == ln[f].prob && path_before(s, i, f))) {
+							ln[f].length = ln[s].length + 1;
+							ln[f].prob = P;
+							ln[f].backptr = s;
+							ln[f].edge = i;
+						}
+					}
+					continue;
+				}
+				
+				String tag = lattice.getTag(v);
+				double tbigram = get_prob(ptt_pos_tf, make_key(prevTag, '-', tag));
+				double wt = ln_lexicon[v] + tbigram - ln_unigram[v];
+				
+				for (int s = ln_head[u]; s >= 0; s = ln[s].sibling) {
+					double P = ln[s].prob + wt;
+					
+					int t = ln_head[v];
+					while (t >= 0 && !same_prefix(ln[t].prefix, ln[s].prefix, tag)) {
+						t = ln[t].sibling;
+					}
+					if (t < 0) {
+						String[] prefix = ln[s].prefix;
+						if (prefix.length < 4) {
+							prefix = Arrays.copyOf(prefix, prefix.length + 1);
+							prefix[prefix.length - 1] = tag;
+						}
+						t = new_lnode(v, prefix, ln[s].length + 1, P, s, i);
+						ln[t].sibling = ln_head[v];
+						ln_head[v] = t;
+					} else if (P > ln[t].prob || (P == ln[t].prob && path_before(s, i, t))) {
+						ln[t].length = ln[s].length + 1;
+						ln[t].prob = P;
+						ln[t].backptr = s;
+						ln[t].edge = i;
+					}
+				}
+			}
+		}
+		
+		// the result of the sentence is traced back from the first node of the last eojeol,
+		// so the last eojeol keeps its first analysis as the first node like the list of eojeols
+		int prev_v = 0;
+		if (last && ln_complete[0]) {
+			prev_v = new_first_mnode(lattice, finals, unigramBnk);
+			if (prev_v != 0) {
+				wp[w].mnode = prev_v;
+			}
+		}
+		
+		// the best analyses for the eojeol tags in the order of the paths
+		while (finals >= 0) {
+			int first = finals, firstPrev = -1;
+			for (int f = finals, prev = -1; f >= 0; prev = f, f = ln[f].sibling) {
+				if (f != first && path_before(ln[f].backptr, ln[f].edge, first)) {
+					first = f;
+					firstPrev = prev;
+				}
+			}
+			if (firstPrev < 0) {
+				finals = ln[first].sibling;
+			} else {
+				ln[firstPrev].sibling = ln[first].sibling;
+			}
+			
+			int len = ln[first].length - 1;
+			String[] morphemes = new String[len];
+			String[] tags = new String[len];
+			for (int s = ln[first].backptr; ln[s].backptr >= 0; s = ln[s].backptr) {
+				len--;
+				morphemes[len] = lattice.getMorpheme(ln[s].node);
+				tags[len] = lattice.getTag(ln[s].node);
+			}
+			
+			int v = new_mnode(new Eojeol(morphemes, tags), ln[first].wp_tag, ln[first].prob);
+			if (prev_v == 0) {
+				wp[w].mnode = v;
+			} else {
+				mn[prev_v].sibling = v;
+			}
+			prev_v = v;
+		}
+	}
+
+	/**
+	 * Visits the nodes of the lattice in the depth first order, and adds them to ln_order after their next nodes.
+	 * It also reads the probabilities of the morphemes of the nodes.
+	 * @param lattice - the morpheme lattice
+	 * @param node - the node to visit
+	 */
+	private void sort_lattice(MorphemeLattice lattice, int node) {
+		boolean complete = false;
+		
+		ln_head[node] = -1;
+		for (int i = 0; i < lattice.getNextCount(node); i++) {
+			int next = lattice.getNext(node, i);
+			if (next == 0) {
+				complete = true;
+				continue;
+			}
+			if (ln_head[next] == -2) {
+				sort_lattice(lattice, next);
+			}
+			complete |= ln_complete[next];
+		}
+		ln_complete[node] = complete;
+		if (node != 0) {
+			String tag = lattice.getTag(node);
+			ln_lexicon[node] = get_prob(pwt_pos_tf, make_key(lattice.getMorpheme(node), '/', tag));
+			ln_unigram[node] = get_prob(ptt_pos_tf, tag);
+		}
+		ln_order[ln_order_end++] = node;
+	}
+
+	/**
+	 * Adds the node for the first analysis in the lattice, unless it is the best one for its eojeol tag.
+	 * @param lattice - the morpheme lattice, which has at least one complete path
+	 * @param finals - the states of the best complete paths for the eojeol tags
+	 * @param unigramBnk - the probability P(bnk)
+	 * @return the index of the new node, 0 if the first analysis is already added as the best one
+	 */
+	private int new_first_mnode(MorphemeLattice lattice, int finals, double unigramBnk) {
+		int[] edges = new int[8];
+		int[] nodes = new int[8];
+		int len = 0;
+		
+		// follows the first edge which reaches the end
+		for (int u = 0; ; ) {
+			int i = 0, v;
+			while ((v = lattice.getNext(u, i)) != 0 && !ln_complete[v]) {
+				i++;
+			}
+			if (len == edges.length) {
+				edges = Arrays.copyOf(edges, len * 2);
+				nodes = Arrays.copyOf(nodes, len * 2);
+			}
+			edges[len] = i;
+			if (v == 0) {
+				break;
+			}
+			nodes[len++] = v;
+			u = v;
+		}
+		
+		String[] morphemes = new String[len];
+		String[] tags = new String[len];
+		String prevTag = "bnk";
+		double prob = 0.0;
+		for (int k = 0; k < len; k++) {
+			morphemes[k] = lattice.getMorpheme(nodes[k]);
+			tags[k] = lattice.getTag(nodes[k]);
+			prob += ln_lexicon[nodes[k]] + get_prob(ptt_pos_tf, make_key(prevTag, '-', tags[k])) - ln_unigram[nodes[k]];
+			prevTag = tags[k];
+		}
+		prob += 0 + get_prob(ptt_pos_tf, make_key(prevTag, '-', "bnk")) - unigramBnk;
+		String wp_tag = PhraseTag.getPhraseTag(tags);
+		
+		for (int f = finals; f >= 0; f = ln[f].sibling) {
+			if (ln[f].wp_tag.equals(wp_tag)) {
+				if (ln[f].length == len + 1) {
+					int[] best = new int[len + 1];
+					get_path_edges(f, best);
+					if (Arrays.equals(best, Arrays.copyOf(edges, len + 1))) {
+						return 0;
+					}
+				}
+				break;
+			}
+		}
+		return new_mnode(new Eojeol(morphemes, tags), wp_tag, prob);
+	}
+
+	/**
+	 * Returns the eojeol tag of the complete path which ends with the specified state.
+	 * @param state - the state of the last morpheme
+	 * @param lastTag - the tag of the last morpheme
+	 * @return the eojeol tag
+	 */
+	private String get_lattice_phrase_tag(int state, String lastTag) {
+		String[] prefix = ln[state].prefix;
+		if (ln[state].length <= prefix.length) {
+			return PhraseTag.getPhraseTag(prefix);
+		}
+		String[] tags = Arrays.copyOf(prefix, prefix.length + 1);
+		tags[prefix.length] = lastTag;
+		return PhraseTag.getPhraseTag(tags);
+	}
+
+	/**
+	 * Checks whether the prefix is the prefix of the state followed by the specified tag.
+	 * @param prefix - the prefix to check
+	 * @param base - the prefix of the previous state
+	 * @param tag - the tag of the next morpheme
+	 * @return true: the prefixes are the same, false: otherwise
+	 */
+	private boolean same_prefix(String[] prefix, String[] base, String tag) {
+		if (base.length == 4) {
+			return Arrays.equals(prefix, base);
+		}
+		if (prefix.length != base.length + 1 || !prefix[base.length].equals(tag)) {
+			return false;
+		}
+		for (int i = 0; i < base.length; i++) {
+			if (!prefix[i].equals(base[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the path of the state followed by the edge comes before the path of the other state in the lattice.
+	 * The paths are in the order of the edges from the start, which is the order of the analysis results.
+	 * @param from - the state which the first path extends
+	 * @param edge - the index of the edge from the node of the state
+	 * @param state - the state of the second path
+	 * @return true: the first path comes before, false: otherwise
+	 */
+	private boolean path_before(int from, int edge, int state) {
+		int lenA = ln[from].length + 1;
+		int lenB = ln[state].length;
+		if (path_a.length < lenA || path_b.length < lenB) {
+			path_a = new int[Math.max(lenA, lenB) * 2];
+			path_b = new int[path_a.length];
+		}
+		path_a[lenA - 1] = edge;
+		get_path_edges(from, path_a);
+		get_path_edges(state, path_b);
+		
+		for (int i = 0; i < lenA && i < lenB; i++) {
+			if (path_a[i] != path_b[i]) {
+				return path_a[i] < path_b[i];
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the edges of the path from the start to the specified state.
+	 * @param state - the state
+	 * @param edges - the buffer for the edges, which has ln[state].length edges
+	 */
+	private void get_path_edges(int state, int[] edges) {
+		for (int s = state; ln[s].backptr >= 0; s = ln[s].backptr) {
+			edges[ln[s].length - 1] = ln[s].edge;
+		}
+	}
+
+	/**
+	 * Adds a new state of viterbi over the morpheme lattice.
+	 * @param node - the node of the lattice
+	 * @param prefix - the first morpheme tags of the path
+	 * @param length - the number of edges in the path
+	 * @param prob - the accumulated probability
+	 * @param backptr - the previous state, -1 for the start
+	 * @param edge - the index of the edge from the node of the previous state
+	 * @return the index of the new state
+	 */
+	private int new_lnode(int node, String[] prefix, int length, double prob, int backptr, int edge) {
+		if (ln_end == ln.length) {
+			ln = Arrays.copyOf(ln, ln_end * 2);
+			for (int i = ln_end; i < ln.length; i++) {
+				ln[i] = new LNode();
+			}
+		}
+		LNode l = ln[ln_end];
+		l.node = node;
+		l.prefix = prefix;
+		l.length = length;
+		l.prob = prob;
+		l.backptr = backptr;
+		l.edge = edge;
+		l.wp_tag = null;
+		l.sibling = -1;
+		return ln_end++;
+	}
+
 	/**
 	 * Runs viterbi to get the final morphological analysis result which has the highest probability.
 	 * @param sos - all the candidates of morphological analysis
@@ -388,7 +825,7 @@ public class HMMTagger implements PosTagger {
 		double P;
 
 		/* the traisition probability P(T_i,T_i-1) */
-		prob = ptt_wp_tf.get(mn[from].wp_tag + "-" +mn[to].wp_tag);
+		prob = ptt_wp_tf.get(make_key(mn[from].wp_tag, '-', mn[to].wp_tag));
 		
 		if (prob == null) {
 			/* ln(0.01). Smoothing Factor */
@@ -90,6 +90,9 @@ public class KoNLPHMMTagger implements PosTagger {
 	
 	/** for the probability P(T|T) for eojeols */
 	private ProbabilityDBM ptt_wp_tf = null;
+	
+	/** the buffer for making the keys of the probability data */
+	private StringBuilder key_buf = new StringBuilder();
 
 	/** the statistic file for the probability P(T|W) for morphemes */
 	private String PWT_POS_TDBM_FILE;
@@ -114,6 +117,7 @@ public class KoNLPHMMTagger implements PosTagger {
 	
 	public Sentence tagPOS(SetOfSentences sos) {
 		int v = 0, prev_v = 0, w = 0;
+		sos.expandLattices();
 		ArrayList<String> plainEojeolArray = sos.getPlainEojeolArray();
 		ArrayList<Eojeol[]> eojeolSetArray = sos.getEojeolSetArray();
 		
@@ -179,6 +183,20 @@ public class KoNLPHMMTagger implements PosTagger {
 
 	}
 
+	/**
+	 * Makes the key of the probability data in the key buffer, e.g. 'ncn-jxc' or '학교/ncn'.
+	 * The key is valid until the next call, since the buffer is reused.
+	 * @param first - the first part of the key
+	 * @param sep - the separator
+	 * @param second - the second part of the key
+	 * @return the key made
+	 */
+	private CharSequence make_key(String first, char sep, String second) {
+		key_buf.setLength(0);
+		key_buf.append(first).append(sep).append(second);
+		return key_buf;
+	}
+
 	/**
 	 * Computes P(T_i, W_i) of the specified eojeol.
 	 * @param eojeol - the eojeol to compute the probability
@@ -189,13 +207,13 @@ public class KoNLPHMMTagger implements PosTagger {
 		double current = 0.0, tbigram, tunigram, lexicon;
 
 		String tag;
-		String bitag;
+		CharSequence bitag;
 		String oldtag;
 
 		tag = eojeol.getTag(0);
 
 		/* the probability of P(t1|t0) */
-		bitag = "bnk-" + tag;
+		bitag = make_key("bnk", '-', tag);
 
 		double[] prob = null;
 
@@ -217,7 +235,7 @@ public class KoNLPHMMTagger implements PosTagger {
 		}
 
 		/* the probability of P(w|t) */
-		if ((prob = pwt_pos_tf.get(eojeol.getMorpheme(0) + "/" + tag)) != null) {
+		if ((prob = pwt_pos_tf.get(make_key(eojeol.getMorpheme(0), '/', tag))) != null) {
 			/* current *= P(w|t1) */
 			lexicon = prob[0];
 		} else {
@@ -251,7 +269,7 @@ public class KoNLPHMMTagger implements PosTagger {
 			tag = eojeol.getTag(i);
 
 			/* P(t_i|t_i-1) */
-			bitag = oldtag + "-" + tag;
+			bitag = make_key(oldtag, '-', tag);
 
 			if ((prob = ptt_pos_tf.get(bitag)) != null) {
 				tbigram = prob[0];
@@ -260,7 +278,7 @@ public class KoNLPHMMTagger implements PosTagger {
 			}
 
 			/* P(w|t) */
-			if ((prob = pwt_pos_tf.get(eojeol.getMorpheme(i) + "/" + tag)) != null) {
+			if ((prob = pwt_pos_tf.get(make_key(eojeol.getMorpheme(i), '/', tag))) != null) {
 				/* current *= P(w|t) */
 				lexicon = prob[0];
 			} else {
@@ -284,7 +302,7 @@ public class KoNLPHMMTagger implements PosTagger {
 		}
 
 		/* the blank at the end of eojeol */
-		bitag = tag + "-bnk";
+		bitag = make_key(tag, '-', "bnk");
 
 		/* P(bnk|t_last) */
 		if ((prob = ptt_pos_tf.get(bitag)) != null) {
@@ -383,7 +401,7 @@ public class KoNLPHMMTagger implements PosTagger {
 		double P;
 
 		/* the traisition probability P(T_i,T_i-1) */
-		prob = ptt_wp_tf.get(mn[from].wp_tag + "-" +mn[to].wp_tag);
+		prob = ptt_wp_tf.get(make_key(mn[from].wp_tag, '-', mn[to].wp_tag));
 		
 		if (prob == null) {
 			/* ln(0.01). Smoothing Factor */
@@ -20,15 +20,18 @@ package kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.PosTagger.HmmPosTagger;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Hashtable;
+import java.util.HashMap;
+
+import kr.ac.kaist.swrc.jhannanum.share.StringMap;
 
 /**
  * This class is for statistic data which is important to the Hidden Markov Model.
+ * The data is not modified after loading, so the look-ups take no lock.
  * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
  */
 public class ProbabilityDBM {
-	/** hash table */
-	protected Hashtable<String,double[]> table = null;
+	/** hash table, which is made when the data is loaded */
+	protected StringMap<double[]> table = null;
 	
 	/**
 	 * Constructor.
@@ -36,26 +39,27 @@ public class ProbabilityDBM {
 	 * @throws IOException
 	 */
 	public ProbabilityDBM(String fileName) throws IOException {
-		table = new Hashtable<String,double[]>();
 		BufferedReader br = new BufferedReader(new FileReader(fileName));
 		init(br);
 	}
 	
-	protected ProbabilityDBM(){}
+	protected ProbabilityDBM(){
+		table = new StringMap<double[]>();
+	}
 	
 	/**
 	 * Cleans the hash table.
 	 */
 	public void clear() {
-		table.clear();
+		table = new StringMap<double[]>();
 	}
 	
 	/**
 	 * Gets the probability data to which specified key mapped.
-	 * @param key - the key of probability data
+	 * @param key - the key of probability data, which can be a StringBuilder reused for making the keys
 	 * @return the probability data to which specified key mapped
 	 */
-	public double[] get(String key) {
+	public double[] get(CharSequence key) {
 		return table.get(key);
 	}
 	
@@ -68,6 +72,7 @@ public class ProbabilityDBM {
 		String line = null;
 		String[] tokens = null;
 		double[] numbers = null;
+		HashMap<String,double[]> map = new HashMap<String,double[]>();
 		
 		while ((line = br.readLine()) != null) {
 			tokens = line.split(" ");
@@ -82,8 +87,10 @@ public class ProbabilityDBM {
 				System.out.println("hi");
 			}
 			
-			table.put(tokens[0], numbers);
+			map.put(tokens[0], numbers);
 		}
 		br.close();
+		
+		table = new StringMap<double[]>(map);
 	}
 }
@@ -4,7 +4,6 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.Hashtable;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -12,8 +11,6 @@ public class ZipProbabilityDBM extends ProbabilityDBM {
 
 	
 	public ZipProbabilityDBM(String zipFilePath, String filePath) throws IOException {
-		table = new Hashtable<String,double[]>();
-		
 		ZipFile zip = new ZipFile(zipFilePath);
 		ZipEntry entry = zip.getEntry(filePath);
 		InputStream in  = zip.getInputStream(entry);
@@ -66,6 +66,7 @@ public class SimpleMAResult09 implements MorphemeProcessor {
 	 */
 	@Override
 	public SetOfSentences doProcess(SetOfSentences sos) {
+		sos.expandLattices();
 		ArrayList<Eojeol[]> eojeolSetArray = sos.getEojeolSetArray();
 		ArrayList<Eojeol[]> resultSetArray = new ArrayList<Eojeol[]>();
 		
@@ -74,6 +74,7 @@ public class SimpleMAResult22 implements MorphemeProcessor {
 	 */
 	@Override
 	public SetOfSentences doProcess(SetOfSentences sos) {
+		sos.expandLattices();
 		ArrayList<Eojeol[]> eojeolSetArray = sos.getEojeolSetArray();
 		ArrayList<Eojeol[]> resultSetArray = new ArrayList<Eojeol[]>();
 		
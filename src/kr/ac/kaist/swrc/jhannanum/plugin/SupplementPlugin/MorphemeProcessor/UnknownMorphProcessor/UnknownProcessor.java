@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 
 import kr.ac.kaist.swrc.jhannanum.comm.Eojeol;
+import kr.ac.kaist.swrc.jhannanum.comm.MorphemeLattice;
 import kr.ac.kaist.swrc.jhannanum.comm.SetOfSentences;
 import kr.ac.kaist.swrc.jhannanum.plugin.SupplementPlugin.MorphemeProcessor.MorphemeProcessor;
 
@@ -39,12 +40,26 @@ public class UnknownProcessor implements MorphemeProcessor {
 	@Override
 	public SetOfSentences doProcess(SetOfSentences sos) {
 		ArrayList<Eojeol[]> eojeolSetArray = sos.getEojeolSetArray();
+		ArrayList<MorphemeLattice> latticeArray = sos.getLatticeArray();
 		
 		LinkedList<Eojeol> eojeolArray = new LinkedList<Eojeol>();
 		
 		for (int i = 0; i < eojeolSetArray.size(); i++) {
 			Eojeol[] eojeolSet = eojeolSetArray.get(i);
 			
+			MorphemeLattice lattice = (latticeArray == null) ? null : latticeArray.get(i);
+			if (lattice != null) {
+				// the 'nqq' node is added next to each 'unk' node, so the lattice has all the combinations
+				int nodeCount = lattice.getNodeCount();
+				for (int n = 1; n < nodeCount; n++) {
+					if (lattice.getTag(n).equals("unk")) {
+						lattice.setTag(n, "ncn");
+						lattice.addAlternative(n, "nqq");
+					}
+				}
+				continue;
+			}
+			
 			eojeolArray.clear();
 			for (int j = 0; j < eojeolSet.length; j++) {
 				eojeolArray.add(eojeolSet[j]);
@@ -213,15 +213,26 @@ public class Code {
 	 * @return the unicode text
 	 */
 	public static String toString(char[] tripleArray) {
-		String result = "";
-		int i = 0;
-		int len = tripleArray.length;
+		return toString(tripleArray, 0, tripleArray.length);
+	}
+
+	/**
+	 * Converts the encoding of the specified part of the text from Hangul triple encoding to unicode.
+	 * @param tripleArray - the text with the Hangul triple encoding
+	 * @param begin - the start index of the part to convert
+	 * @param end - the end index of the part to convert (exclusive)
+	 * @return the unicode text
+	 */
+	public static String toString(char[] tripleArray, int begin, int end) {
+		StringBuilder result = new StringBuilder(end - begin);
+		int i = begin;
+		int len = end;
 		
 		int cho;
 		int jung;
 		int jong;
 		
-		if (len == 0) {
+		if (begin >= end) {
 			return "";
 		}
 		
@@ -244,28 +255,28 @@ public class Code {
 						jong = c - 0x11A7;
 						
 						// choseong + jungseong + jongseong
-						result += (char)(0xAC00 + (cho * 21 * 28) + (jung * 28) + jong);
+						result.append((char)(0xAC00 + (cho * 21 * 28) + (jung * 28) + jong));
 						if (++i < len) {
 							c = tripleArray[i];
 						}
 					} else {
 						// choseong + jungseong
-						result += (char)(0xAC00 + (cho * 21 * 28) + (jung * 28));
+						result.append((char)(0xAC00 + (cho * 21 * 28) + (jung * 28)));
 					}
 				} else {
 					// choseong: a single choseong is represented as ^consonant
 					char tmp = CHOSEONG_LIST[cho];
 					if (tmp == 'ㅃ' || tmp == 'ㅉ' || tmp == 'ㄸ') {
-						result += CHOSEONG_LIST[cho];
+						result.append(CHOSEONG_LIST[cho]);
 					} else {
-						result += "^" + CHOSEONG_LIST[cho];
+						result.append('^').append(CHOSEONG_LIST[cho]);
 					}
 				}
 			} else if (c >= 0x1161 && c <= 0x1175 && i < len) {
 				jung = c - 0x1161;
 				
 				// jungseong
-				result += (char)(jung + 0x314F);
+				result.append((char)(jung + 0x314F));
 				
 				if (++i < len) {
 					c = tripleArray[i];
@@ -274,20 +285,20 @@ public class Code {
 				jong = c - 0x11A7;
 				
 				// jongseong
-				result += JONGSEONG_LIST[jong];
+				result.append(JONGSEONG_LIST[jong]);
 				
 				if (++i < len) {
 					c = tripleArray[i];
 				}
 			} else {
-				result += c;
+				result.append(c);
 				
 				if (++i < len) {
 					c = tripleArray[i];
 				}
 			}
 		}
-		return result;
+		return result.toString();
 	}
 	
 	/**
@@ -155,6 +155,16 @@ public class JSONReader {
 		return json.getString(key);
 	}
 	
+	/**
+	 * Returns the value mapped with the specified key, or the default value if the key doesn't exist.
+	 * @param key - the key of the value
+	 * @param defaultValue - the value returned when the key doesn't exist
+	 * @return the value mapped with the specified key
+	 */
+	public String getValue(String key, String defaultValue) {
+		return json.optString(key, defaultValue);
+	}
+	
 	/**
 	 * Returns the file path of the configuration file.
 	 * @return the file path of the configuration file
@@ -0,0 +1,144 @@
+/*  Copyright 2010, 2011 Semantic Web Research Center, KAIST
+
+This file is part of JHanNanum.
+
+JHanNanum is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+JHanNanum is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with JHanNanum.  If not, see <http://www.gnu.org/licenses/>   */
+
+package kr.ac.kaist.swrc.jhannanum.share;
+
+import java.util.Map;
+
+/**
+ * The read-only hash map with string keys, which is for the dictionaries loaded once and
+ * searched many times such as the pre-analyzed dictionary and the probability data of the tagger.
+ *
+ * The keys and the values are kept in the arrays with open addressing, and the map is not
+ * modified after it is made. So the look-ups take no lock, and the map can be searched on
+ * many threads at the same time. The key to search can be any char sequence, e.g. a
+ * StringBuilder reused for making the keys, so no string needs to be made for a look-up.
+ *
+ * @author Sangwon Park (hudoni@world.kaist.ac.kr), CILab, SWRC, KAIST
+ */
+public class StringMap<V> {
+	/** the keys, null: the slot is empty */
+	private final String[] keys;
+
+	/** the hash code of the key on each slot */
+	private final int[] hashes;
+
+	/** the value on each slot */
+	private final Object[] values;
+
+	/** the mask for the index of slots, the number of slots is a power of two */
+	private final int mask;
+
+	/** the number of entries */
+	private final int size;
+
+	/**
+	 * Constructor. It makes the empty map.
+	 */
+	public StringMap() {
+		keys = new String[1];
+		hashes = new int[1];
+		values = new Object[1];
+		mask = 0;
+		size = 0;
+	}
+
+	/**
+	 * Constructor. It makes the map with the entries of the specified map.
+	 * @param map - the map which has the entries, null keys are not allowed
+	 */
+	public StringMap(Map<String, ? extends V> map) {
+		int capacity = 2;
+		while (capacity < map.size() * 2) {
+			capacity <<= 1;
+		}
+
+		keys = new String[capacity];
+		hashes = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		size = map.size();
+
+		for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+			String key = entry.getKey();
+			int h = key.hashCode();
+			int idx = mix(h) & mask;
+			while (keys[idx] != null) {
+				idx = (idx + 1) & mask;
+			}
+			keys[idx] = key;
+			hashes[idx] = h;
+			values[idx] = entry.getValue();
+		}
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped.
+	 * @param key - the key to search, which is compared with the keys by the characters
+	 * @return the value of the key, null if the map has no such key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(CharSequence key) {
+		int h = hash(key);
+		int idx = mix(h) & mask;
+		String k;
+
+		while ((k = keys[idx]) != null) {
+			if (hashes[idx] == h && k.contentEquals(key)) {
+				return (V)values[idx];
+			}
+			idx = (idx + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the hash code of the char sequence, which is the same with String.hashCode().
+	 * @param key - the char sequence
+	 * @return the hash code
+	 */
+	private static int hash(CharSequence key) {
+		if (key instanceof String) {
+			return key.hashCode();
+		}
+		int h = 0;
+		for (int i = 0, len = key.length(); i < len; i++) {
+			h = 31 * h + key.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Spreads the bits of the hash code, since the slot is chosen with the lower bits.
+	 * @param h - the hash code
+	 * @return the hash code mixed
+	 */
+	private static int mix(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85EBCA6B;
+		h ^= (h >>> 13);
+		return h;
+	}
+}
\ No newline at end of file
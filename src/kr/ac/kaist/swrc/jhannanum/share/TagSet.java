@@ -216,6 +216,14 @@ public class TagSet {
 		return irregularList.get(irregularID);
 	}
 	
+	/**
+	 * Returns the number of irregular rules loaded.
+	 * @return the number of irregular rules loaded
+	 */
+	public int getIrregularCount() {
+		return irregularList.size();
+	}
+	
 	/**
 	 * Returns the number of morpheme tags loaded.
 	 * @return the number of morpheme tags loaded
@@ -20,6 +20,7 @@ package kr.ac.kaist.swrc.jhannanum.thread;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import kr.ac.kaist.swrc.jhannanum.comm.PlainSentence;
+import kr.ac.kaist.swrc.jhannanum.plugin.MajorPlugin.MorphAnalyzer.UserDicLayer;
 import kr.ac.kaist.swrc.jhannanum.plugin.SupplementPlugin.PlainTextProcessor.PlainTextProcessor;
 
 /**
@@ -51,22 +52,28 @@ public class PlainTextProcThread extends Thread {
 	@Override
 	public void run() {
 		PlainSentence ps = null;
+		UserDicLayer layer = null;
 		
 		try {
 			while (true) {
 				ps = in.take();
+				// the plug-in may make new sentences, which take the layer of the input
+				layer = ps.getUserDicLayer();
 				
 				if ((ps = plainTextProcessor.doProcess(ps)) != null) {
+					ps.setUserDicLayer(layer);
 					out.add(ps);
 				}
 				
 				while (plainTextProcessor.hasRemainingData()) {
 					if ((ps = plainTextProcessor.doProcess(null)) != null) {
+						ps.setUserDicLayer(layer);
 						out.add(ps);
 					}
 				}
 				
 				if ((ps = plainTextProcessor.flush()) != null) {
+					ps.setUserDicLayer(layer);
 					out.add(ps);
 				}
 			}